@@ -0,0 +1,280 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+import ru.yandex.javacourse.schedule.tasks.Task;
+import ru.yandex.javacourse.schedule.tasks.TaskType;
+
+/**
+ * History kept in parallel arrays instead of linked nodes.
+ * <p>
+ * Entries occupy slots linked by {@code int} prev/next indices, and an open-addressing table maps each
+ * id to its slot. Freed slots go to a free list, and once the history reaches {@code capacity} a new
+ * entry takes the slot of the evicted one, so recording a view allocates nothing in steady state.
+ * Each slot also keeps the task type, so {@link #removeAll(TaskType)} walks the history without looking
+ * tasks up. Eviction and the resolver behave as in {@link InMemoryHistoryManager}.
+ */
+public class ArrayHistoryManager implements HistoryManager {
+    private static final int NONE = -1;
+    private static final int MIN_SLOTS = 16;
+
+    private final int capacity;
+    private final IntFunction<? extends Task> resolver;
+
+    private int[] ids;
+    private int[] prev;
+    private int[] next;
+    private byte[] types;
+    // only without a resolver
+    private Task[] tasks;
+    private int head = NONE;
+    private int tail = NONE;
+    private int free = NONE;
+    private int used;
+    private int size;
+
+    // slot + 1 for the id in the same bucket, 0 for an empty bucket
+    private int[] bucketIds;
+    private int[] bucketSlots;
+
+    public ArrayHistoryManager() {
+        this(InMemoryHistoryManager.DEFAULT_CAPACITY);
+    }
+
+    public ArrayHistoryManager(int capacity) {
+        this(capacity, null);
+    }
+
+    public ArrayHistoryManager(int capacity, IntFunction<? extends Task> resolver) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным: " + capacity);
+        }
+        this.capacity = capacity;
+        this.resolver = resolver;
+        int slots = Math.min(capacity, MIN_SLOTS);
+        ids = new int[slots];
+        prev = new int[slots];
+        next = new int[slots];
+        types = new byte[slots];
+        tasks = resolver == null ? new Task[slots] : null;
+        allocateBuckets(MIN_SLOTS * 2);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        List<Task> result = new ArrayList<>(size);
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            Task task = resolver == null ? tasks[slot] : resolver.apply(ids[slot]);
+            if (task != null) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) {
+            return;
+        }
+        int id = task.getId();
+        int slot = slotOf(id);
+        if (slot != NONE) {
+            unlink(slot);
+        } else {
+            if (size == capacity) {
+                slot = head;
+                unlink(slot);
+                removeBucket(ids[slot]);
+                size--;
+            } else {
+                slot = takeSlot();
+            }
+            ids[slot] = id;
+            putBucket(id, slot);
+            size++;
+        }
+        types[slot] = (byte) task.getType().ordinal();
+        if (tasks != null) {
+            tasks[slot] = task;
+        }
+        linkLast(slot);
+    }
+
+    @Override
+    public void remove(int id) {
+        int slot = slotOf(id);
+        if (slot != NONE) {
+            release(slot);
+        }
+    }
+
+    @Override
+    public void removeAll(TaskType type) {
+        int slot = head;
+        while (slot != NONE) {
+            int after = next[slot];
+            if (types[slot] == type.ordinal()) {
+                release(slot);
+            }
+            slot = after;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int id) {
+        return slotOf(id) != NONE;
+    }
+
+    /**
+     * Passes the ids in history order without looking the tasks up.
+     */
+    void forEachId(IntConsumer action) {
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            action.accept(ids[slot]);
+        }
+    }
+
+    /**
+     * Passes the ids of the given type in history order, reading only the type kept in each slot.
+     */
+    void forEachId(TaskType type, IntConsumer action) {
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            if (types[slot] == type.ordinal()) {
+                action.accept(ids[slot]);
+            }
+        }
+    }
+
+    private void release(int slot) {
+        unlink(slot);
+        removeBucket(ids[slot]);
+        if (tasks != null) {
+            tasks[slot] = null;
+        }
+        next[slot] = free;
+        free = slot;
+        size--;
+    }
+
+    private int takeSlot() {
+        if (free != NONE) {
+            int slot = free;
+            free = next[slot];
+            return slot;
+        }
+        if (used == ids.length) {
+            int slots = (int) Math.min(capacity, (long) ids.length << 1);
+            ids = Arrays.copyOf(ids, slots);
+            prev = Arrays.copyOf(prev, slots);
+            next = Arrays.copyOf(next, slots);
+            types = Arrays.copyOf(types, slots);
+            if (tasks != null) {
+                tasks = Arrays.copyOf(tasks, slots);
+            }
+        }
+        return used++;
+    }
+
+    private void linkLast(int slot) {
+        prev[slot] = tail;
+        next[slot] = NONE;
+        if (tail != NONE) {
+            next[tail] = slot;
+        } else {
+            head = slot;
+        }
+        tail = slot;
+    }
+
+    private void unlink(int slot) {
+        int before = prev[slot];
+        int after = next[slot];
+        if (before != NONE) {
+            next[before] = after;
+        } else {
+            head = after;
+        }
+        if (after != NONE) {
+            prev[after] = before;
+        } else {
+            tail = before;
+        }
+    }
+
+    private int slotOf(int id) {
+        int mask = bucketSlots.length - 1;
+        int index = hash(id) & mask;
+        while (bucketSlots[index] != 0) {
+            if (bucketIds[index] == id) {
+                return bucketSlots[index] - 1;
+            }
+            index = (index + 1) & mask;
+        }
+        return NONE;
+    }
+
+    private void putBucket(int id, int slot) {
+        if (size + 1 > bucketSlots.length - (bucketSlots.length >>> 2)) {
+            int[] oldIds = bucketIds;
+            int[] oldSlots = bucketSlots;
+            allocateBuckets(bucketSlots.length << 1);
+            for (int i = 0; i < oldSlots.length; i++) {
+                if (oldSlots[i] != 0) {
+                    insertBucket(oldIds[i], oldSlots[i]);
+                }
+            }
+        }
+        insertBucket(id, slot + 1);
+    }
+
+    private void insertBucket(int id, int slotPlusOne) {
+        int mask = bucketSlots.length - 1;
+        int index = hash(id) & mask;
+        while (bucketSlots[index] != 0) {
+            index = (index + 1) & mask;
+        }
+        bucketIds[index] = id;
+        bucketSlots[index] = slotPlusOne;
+    }
+
+    private void removeBucket(int id) {
+        int mask = bucketSlots.length - 1;
+        int gap = hash(id) & mask;
+        while (bucketIds[gap] != id || bucketSlots[gap] == 0) {
+            gap = (gap + 1) & mask;
+        }
+        int index = gap;
+        while (true) {
+            index = (index + 1) & mask;
+            if (bucketSlots[index] == 0) {
+                break;
+            }
+            int home = hash(bucketIds[index]) & mask;
+            boolean movable = index > gap ? (home <= gap || home > index) : (home <= gap && home > index);
+            if (movable) {
+                bucketIds[gap] = bucketIds[index];
+                bucketSlots[gap] = bucketSlots[index];
+                gap = index;
+            }
+        }
+        bucketSlots[gap] = 0;
+    }
+
+    private void allocateBuckets(int buckets) {
+        bucketIds = new int[buckets];
+        bucketSlots = new int[buckets];
+    }
+
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
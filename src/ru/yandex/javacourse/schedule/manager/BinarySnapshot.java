@@ -0,0 +1,326 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ru.yandex.javacourse.schedule.tasks.Epic;
+import ru.yandex.javacourse.schedule.tasks.Subtask;
+import ru.yandex.javacourse.schedule.tasks.Task;
+import ru.yandex.javacourse.schedule.tasks.TaskStatus;
+import ru.yandex.javacourse.schedule.tasks.TaskType;
+
+/**
+ * Binary snapshot codec.
+ * <p>
+ * Layout: magic {@code TKBS}, varint version, flags byte, the string dictionary when flagged,
+ * varint row count and the rows. A row is the type and status ordinals, varint id, name and description,
+ * the epic id for a subtask, and for tasks and subtasks the duration in minutes and the start time.
+ * The duration is zigzag-encoded plus one, so negative ones survive; version 1 stored non-negative minutes plus
+ * one and is still read. Strings are length-prefixed UTF-8, or dictionary indexes when the dictionary is on; {@code 0} stands for
+ * {@code null}. Start times on a whole minute are stored as UTC epoch minutes, others exactly.
+ */
+final class BinarySnapshot {
+    static final int VERSION = 2;
+    private static final int VERSION_UNSIGNED_DURATION = 1;
+
+    private static final byte[] MAGIC = {'T', 'K', 'B', 'S'};
+    private static final int FLAG_DICTIONARY = 1;
+    private static final int TIME_NONE = 0;
+    private static final int TIME_MINUTES = 1;
+    private static final int TIME_EXACT = 2;
+
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private BinarySnapshot() {
+    }
+
+    static boolean isBinary(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            return Arrays.equals(in.readNBytes(MAGIC.length), MAGIC);
+        }
+    }
+
+    static byte[] encode(List<? extends Task> rows, boolean dictionary) {
+        Output out = new Output(Math.max(64, rows.size() * 32));
+        out.bytes(MAGIC);
+        out.varint(VERSION);
+        out.raw(dictionary ? FLAG_DICTIONARY : 0);
+
+        Map<String, Integer> indexes = null;
+        if (dictionary) {
+            indexes = new HashMap<>();
+            List<String> strings = new ArrayList<>();
+            for (Task task : rows) {
+                for (String value : new String[]{task.getName(), task.getDescription()}) {
+                    if (value != null && indexes.putIfAbsent(value, strings.size()) == null) {
+                        strings.add(value);
+                    }
+                }
+            }
+            out.varint(strings.size());
+            strings.forEach(out::string);
+        }
+
+        out.varint(rows.size());
+        for (Task task : rows) {
+            TaskType type = task.getType();
+            out.raw(type.ordinal());
+            out.raw(task.getStatus().ordinal());
+            out.varint(task.getId());
+            if (indexes == null) {
+                out.string(task.getName());
+                out.string(task.getDescription());
+            } else {
+                out.varint(task.getName() == null ? 0 : indexes.get(task.getName()) + 1);
+                out.varint(task.getDescription() == null ? 0 : indexes.get(task.getDescription()) + 1);
+            }
+            if (task instanceof Subtask subtask) {
+                out.varint(subtask.getEpicId());
+            }
+            if (type != TaskType.EPIC) {
+                out.varlong(task.getDuration() == null ? 0 : Output.zigzag(task.getDuration().toMinutes()) + 1);
+                out.time(task.getStartTime());
+            }
+        }
+        return out.toByteArray();
+    }
+
+    static List<Task> decode(InputStream stream) throws IOException {
+        Input in = new Input(stream);
+        byte[] magic = in.bytes(MAGIC.length);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new ManagerSaveException("Бинарный снимок: неверная сигнатура");
+        }
+        int version = in.varint();
+        if (version != VERSION && version != VERSION_UNSIGNED_DURATION) {
+            throw new ManagerSaveException("Бинарный снимок: неподдерживаемая версия " + version);
+        }
+        int flags = in.raw();
+
+        String[] dictionary = null;
+        if ((flags & FLAG_DICTIONARY) != 0) {
+            dictionary = new String[in.varint()];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = in.string();
+            }
+        }
+
+        int count = in.varint();
+        List<Task> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TaskType type = ordinal(TYPES, in.raw());
+            TaskStatus status = ordinal(STATUSES, in.raw());
+            int id = in.varint();
+            String name = dictionary == null ? in.string() : entry(dictionary, in.varint());
+            String description = dictionary == null ? in.string() : entry(dictionary, in.varint());
+            Task task = switch (type) {
+                case EPIC -> {
+                    Epic epic = new Epic(name, description);
+                    epic.setStatus(status);
+                    yield epic;
+                }
+                case SUBTASK -> {
+                    int epicId = in.varint();
+                    yield new Subtask(name, description, status, epicId, duration(in.varlong(), version), in.time());
+                }
+                case TASK -> new Task(name, description, status, duration(in.varlong(), version), in.time());
+            };
+            task.setId(id);
+            rows.add(task);
+        }
+        return rows;
+    }
+
+    private static Duration duration(long encoded, int version) {
+        if (encoded == 0) {
+            return null;
+        }
+        return Duration.ofMinutes(version == VERSION_UNSIGNED_DURATION ? encoded - 1 : Input.unzigzag(encoded - 1));
+    }
+
+    private static String entry(String[] dictionary, int encoded) {
+        if (encoded > dictionary.length) {
+            throw new ManagerSaveException("Бинарный снимок: нет строки " + encoded + " в словаре");
+        }
+        return encoded == 0 ? null : dictionary[encoded - 1];
+    }
+
+    private static <E> E ordinal(E[] values, int ordinal) {
+        if (ordinal >= values.length) {
+            throw new ManagerSaveException("Бинарный снимок: неверное значение " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    private static final class Output {
+        private byte[] buffer;
+        private int size;
+
+        Output(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void raw(int value) {
+            ensure(1);
+            buffer[size++] = (byte) value;
+        }
+
+        void bytes(byte[] value) {
+            ensure(value.length);
+            System.arraycopy(value, 0, buffer, size, value.length);
+            size += value.length;
+        }
+
+        void varint(int value) {
+            varlong(value & 0xFFFFFFFFL);
+        }
+
+        void varlong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void string(String value) {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length + 1);
+            bytes(utf8);
+        }
+
+        void time(LocalDateTime time) {
+            if (time == null) {
+                raw(TIME_NONE);
+                return;
+            }
+            long seconds = time.toEpochSecond(ZoneOffset.UTC);
+            if (time.getNano() == 0 && Math.floorMod(seconds, 60) == 0) {
+                raw(TIME_MINUTES);
+                varlong(zigzag(Math.floorDiv(seconds, 60)));
+            } else {
+                raw(TIME_EXACT);
+                varlong(zigzag(seconds));
+                varint(time.getNano());
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+
+    private static final class Input {
+        private final InputStream in;
+        private final byte[] buffer = new byte[1 << 16];
+        private int position;
+        private int limit;
+
+        Input(InputStream in) {
+            this.in = in;
+        }
+
+        int raw() throws IOException {
+            if (position == limit) {
+                fill();
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        byte[] bytes(int length) throws IOException {
+            byte[] result = new byte[length];
+            int copied = 0;
+            while (copied < length) {
+                if (position == limit) {
+                    fill();
+                }
+                int chunk = Math.min(length - copied, limit - position);
+                System.arraycopy(buffer, position, result, copied, chunk);
+                position += chunk;
+                copied += chunk;
+            }
+            return result;
+        }
+
+        int varint() throws IOException {
+            long value = varlong();
+            if (value > 0xFFFFFFFFL) {
+                throw new ManagerSaveException("Бинарный снимок: слишком большое число");
+            }
+            return (int) value;
+        }
+
+        long varlong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = raw();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new ManagerSaveException("Бинарный снимок: повреждённое число");
+        }
+
+        String string() throws IOException {
+            int length = varint();
+            return length == 0 ? null : new String(bytes(length - 1), StandardCharsets.UTF_8);
+        }
+
+        LocalDateTime time() throws IOException {
+            int tag = raw();
+            return switch (tag) {
+                case TIME_NONE -> null;
+                case TIME_MINUTES -> LocalDateTime.ofEpochSecond(unzigzag(varlong()) * 60, 0, ZoneOffset.UTC);
+                case TIME_EXACT -> {
+                    long seconds = unzigzag(varlong());
+                    yield LocalDateTime.ofEpochSecond(seconds, varint(), ZoneOffset.UTC);
+                }
+                default -> throw new ManagerSaveException("Бинарный снимок: неверная метка времени " + tag);
+            };
+        }
+
+        private void fill() throws IOException {
+            int read = in.read(buffer, 0, buffer.length);
+            if (read <= 0) {
+                throw new ManagerSaveException("Бинарный снимок: неожиданный конец файла");
+            }
+            position = 0;
+            limit = read;
+        }
+
+        private static long unzigzag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import ru.yandex.javacourse.schedule.tasks.Task;
+import ru.yandex.javacourse.schedule.tasks.TaskType;
+import ru.yandex.javacourse.schedule.util.IntIterable;
+
+/**
+ * History manager for concurrent readers: {@link #add} only appends the view to a buffer.
+ * <p>
+ * Each thread writes to one of several striped ring buffers without locking. A single drainer, holding
+ * the drain lock, applies buffered views to a delegate that need not be thread-safe: in a batch once a
+ * buffer is half full, and always before a removal and {@link #getHistory}. Views are never dropped;
+ * a thread that finds its buffer full drains it itself. Views of one thread keep their order, while views
+ * made by different threads at about the same time are ordered by the drain.
+ */
+public class BufferedHistoryManager implements HistoryManager {
+    static final int BUFFER_SIZE = 128;
+
+    private final HistoryManager delegate;
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final Buffer[] buffers;
+
+    public BufferedHistoryManager(HistoryManager delegate) {
+        this(delegate, Runtime.getRuntime().availableProcessors());
+    }
+
+    public BufferedHistoryManager(HistoryManager delegate, int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Количество буферов должно быть положительным: " + stripes);
+        }
+        this.delegate = delegate;
+        buffers = new Buffer[Integer.highestOneBit(stripes * 2 - 1)];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new Buffer();
+        }
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) {
+            return;
+        }
+        long threadId = Thread.currentThread().threadId();
+        Buffer buffer = buffers[(int) (threadId ^ (threadId >>> 32)) & (buffers.length - 1)];
+        while (!buffer.offer(task)) {
+            drainLock.lock();
+            try {
+                buffer.drainTo(delegate);
+            } finally {
+                drainLock.unlock();
+            }
+        }
+        if (buffer.pending() >= BUFFER_SIZE / 2 && drainLock.tryLock()) {
+            try {
+                buffer.drainTo(delegate);
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        drainLock.lock();
+        try {
+            drainAll();
+            delegate.remove(id);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(IntIterable ids) {
+        drainLock.lock();
+        try {
+            drainAll();
+            delegate.removeAll(ids);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(TaskType type) {
+        drainLock.lock();
+        try {
+            drainAll();
+            delegate.removeAll(type);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        drainLock.lock();
+        try {
+            drainAll();
+            return delegate.getHistory();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void drainAll() {
+        for (Buffer buffer : buffers) {
+            buffer.drainTo(delegate);
+        }
+    }
+
+    /**
+     * Ring buffer with many writers and one reader. A writer claims a position by advancing {@code tail}
+     * and then publishes the task in it; the reader stops at a position that is claimed but not yet published.
+     */
+    private static final class Buffer {
+        private final AtomicReferenceArray<Task> slots = new AtomicReferenceArray<>(BUFFER_SIZE);
+        private final AtomicLong tail = new AtomicLong();
+        // written only by the drainer
+        private volatile long head;
+
+        boolean offer(Task task) {
+            while (true) {
+                long position = tail.get();
+                if (position - head >= BUFFER_SIZE) {
+                    return false;
+                }
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index(position), task);
+                    return true;
+                }
+            }
+        }
+
+        long pending() {
+            return tail.get() - head;
+        }
+
+        void drainTo(HistoryManager target) {
+            long position = head;
+            long end = tail.get();
+            while (position < end) {
+                Task task = slots.get(index(position));
+                if (task == null) {
+                    break;
+                }
+                slots.set(index(position), null);
+                target.add(task);
+                position++;
+            }
+            head = position;
+        }
+
+        private static int index(long position) {
+            return (int) position & (BUFFER_SIZE - 1);
+        }
+    }
+}
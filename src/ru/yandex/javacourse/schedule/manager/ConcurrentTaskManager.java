@@ -0,0 +1,339 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import ru.yandex.javacourse.schedule.tasks.Epic;
+import ru.yandex.javacourse.schedule.tasks.Subtask;
+import ru.yandex.javacourse.schedule.tasks.Task;
+import ru.yandex.javacourse.schedule.tasks.TaskStatus;
+import ru.yandex.javacourse.schedule.tasks.TaskType;
+
+/**
+ * Thread-safe task manager.
+ * <p>
+ * Maps are concurrent and ids are atomic. Subtask and epic mutations lock only the stripe of their epic,
+ * task mutations the stripe of the task id, the time index has its own lock, and bulk deletes take the global
+ * lock exclusively. Lock order is: global, stripe, time index, status index. Views are recorded through
+ * {@link BufferedHistoryManager}, so reading a task takes no lock.
+ */
+public class ConcurrentTaskManager extends InMemoryTaskManager {
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final AtomicInteger idGenerator = new AtomicInteger();
+    private final ReadWriteLock globalLock = new ReentrantReadWriteLock();
+    private final Lock[] locks;
+    private final Lock timeLock = new ReentrantLock();
+    private final Lock statusLock = new ReentrantLock();
+
+    public ConcurrentTaskManager() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public ConcurrentTaskManager(int stripes) {
+        super(StorageType.CONCURRENT, new BufferedHistoryManager(Managers.getDefaultHistory()));
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Количество блокировок должно быть положительным: " + stripes);
+        }
+        locks = new Lock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public ArrayList<Subtask> getEpicSubtasks(int epicId) {
+        return withStripe(epicId, () -> super.getEpicSubtasks(epicId));
+    }
+
+    @Override
+    public int addNewTask(Task task) {
+        return shared(() -> super.addNewTask(task));
+    }
+
+    @Override
+    public int addNewEpic(Epic epic) {
+        return shared(() -> super.addNewEpic(epic));
+    }
+
+    @Override
+    public Integer addNewSubtask(Subtask subtask) {
+        return shared(() -> withStripe(subtask.getEpicId(), () -> super.addNewSubtask(subtask)));
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        shared(() -> withStripe(task.getId(), () -> {
+            super.updateTask(task);
+            return null;
+        }));
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        shared(() -> withStripe(epic.getId(), () -> {
+            super.updateEpic(epic);
+            return null;
+        }));
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        shared(() -> withStripe(subtask.getEpicId(), () -> {
+            super.updateSubtask(subtask);
+            return null;
+        }));
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        shared(() -> withStripe(id, () -> {
+            super.deleteTask(id);
+            return null;
+        }));
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        shared(() -> withStripe(id, () -> {
+            super.deleteEpic(id);
+            return null;
+        }));
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        shared(() -> {
+            Subtask subtask = subtasks.get(id);
+            if (subtask != null) {
+                withStripe(subtask.getEpicId(), () -> {
+                    super.deleteSubtask(id);
+                    return null;
+                });
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteTasks() {
+        exclusive(() -> {
+            super.deleteTasks();
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteSubtasks() {
+        exclusive(() -> {
+            super.deleteSubtasks();
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteEpics() {
+        exclusive(() -> {
+            super.deleteEpics();
+            return null;
+        });
+    }
+
+    @Override
+    public List<Integer> addNewTasks(List<? extends Task> tasks) {
+        return exclusive(() -> super.addNewTasks(tasks));
+    }
+
+    @Override
+    public List<Integer> addNewSubtasks(List<Subtask> subtasks) {
+        return exclusive(() -> super.addNewSubtasks(subtasks));
+    }
+
+    @Override
+    public void updateAll(List<? extends Task> tasks) {
+        exclusive(() -> {
+            super.updateAll(tasks);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        exclusive(() -> {
+            super.deleteAll(ids);
+            return null;
+        });
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return withTimeLock(super::getPrioritizedTasks);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return withTimeLock(() -> super.getPrioritizedTasks(from, to));
+    }
+
+    /**
+     * Returns a cursor over a copy of at most {@code limit} tasks, since the index may change under a live view.
+     */
+    @Override
+    public Iterator<Task> iteratePrioritizedTasks(LocalDateTime from, LocalDateTime to, int limit) {
+        return withTimeLock(() -> {
+            List<Task> copy = new ArrayList<>();
+            super.iteratePrioritizedTasks(from, to, limit).forEachRemaining(copy::add);
+            return copy;
+        }).iterator();
+    }
+
+    @Override
+    public List<LocalDateTime> findFreeSlots(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter,
+                                             int limit) {
+        return withTimeLock(() -> super.findFreeSlots(duration, notBefore, notAfter, limit));
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskType type, TaskStatus status) {
+        return withStatusLock(() -> super.getTasksByStatus(type, status));
+    }
+
+    @Override
+    public int countByStatus(TaskType type, TaskStatus status) {
+        return withStatusLock(() -> super.countByStatus(type, status));
+    }
+
+    @Override
+    protected int nextId() {
+        return idGenerator.incrementAndGet();
+    }
+
+    /**
+     * Re-checks the overlap under the time lock: the check made on entry may be stale by now.
+     */
+    @Override
+    protected void reschedule(Task previous, Task task) {
+        withTimeLock(() -> {
+            ensureNoOverlap(task);
+            super.reschedule(previous, task);
+            return null;
+        });
+    }
+
+    @Override
+    protected void addToPrioritizedIfNeeded(Task t) {
+        withTimeLock(() -> {
+            super.addToPrioritizedIfNeeded(t);
+            return null;
+        });
+    }
+
+    @Override
+    protected void removeFromPrioritizedIfPresent(Task t) {
+        withTimeLock(() -> {
+            super.removeFromPrioritizedIfPresent(t);
+            return null;
+        });
+    }
+
+    @Override
+    protected void clearPrioritized(TaskType type) {
+        withTimeLock(() -> {
+            super.clearPrioritized(type);
+            return null;
+        });
+    }
+
+    @Override
+    protected void ensureNoOverlap(Task t) {
+        withTimeLock(() -> {
+            super.ensureNoOverlap(t);
+            return null;
+        });
+    }
+
+    @Override
+    protected void indexStatus(Task task) {
+        withStatusLock(() -> {
+            super.indexStatus(task);
+            return null;
+        });
+    }
+
+    @Override
+    protected void unindexStatus(Task task) {
+        withStatusLock(() -> {
+            super.unindexStatus(task);
+            return null;
+        });
+    }
+
+    @Override
+    protected void clearStatusIndex(TaskType type) {
+        withStatusLock(() -> {
+            super.clearStatusIndex(type);
+            return null;
+        });
+    }
+
+    private <R> R shared(Supplier<R> action) {
+        Lock lock = globalLock.readLock();
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <R> R exclusive(Supplier<R> action) {
+        Lock lock = globalLock.writeLock();
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Locks the stripe of an epic id, or of a task id for plain tasks; ids never repeat across types.
+     */
+    private <R> R withStripe(int id, Supplier<R> action) {
+        Lock lock = locks[Math.floorMod(id, locks.length)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <R> R withStatusLock(Supplier<R> action) {
+        statusLock.lock();
+        try {
+            return action.get();
+        } finally {
+            statusLock.unlock();
+        }
+    }
+
+    private <R> R withTimeLock(Supplier<R> action) {
+        timeLock.lock();
+        try {
+            return action.get();
+        } finally {
+            timeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+import ru.yandex.javacourse.schedule.tasks.Epic;
+import ru.yandex.javacourse.schedule.tasks.Subtask;
+import ru.yandex.javacourse.schedule.tasks.Task;
+import ru.yandex.javacourse.schedule.tasks.TaskStatus;
+import ru.yandex.javacourse.schedule.tasks.TaskType;
+
+/**
+ * RFC 4180 rows of the CSV snapshot and journal.
+ * <p>
+ * Fields holding a comma, a quote or a line break are quoted, with quotes doubled inside.
+ * {@link RowReader} keeps the current record in one reusable char array, so numbers, enums and
+ * timestamps are parsed in place and only names and descriptions become strings.
+ */
+final class CsvCodec {
+    static final String HEADER = "id,type,name,status,description,epic,duration,startTime";
+    static final int COLUMNS = 8;
+
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private CsvCodec() {
+    }
+
+    static void write(StringBuilder out, Task task) {
+        TaskType type = task.getType();
+        out.append(task.getId()).append(',')
+                .append(type.name()).append(',');
+        field(out, String.valueOf(task.getName())).append(',')
+                .append(task.getStatus().name()).append(',');
+        field(out, String.valueOf(task.getDescription())).append(',');
+        if (task instanceof Subtask subtask) {
+            out.append(subtask.getEpicId());
+        }
+        out.append(',');
+        if (type != TaskType.EPIC && task.getDuration() != null) {
+            out.append(task.getDuration().toMinutes());
+        }
+        out.append(',');
+        if (type != TaskType.EPIC && task.getStartTime() != null) {
+            out.append(task.getStartTime());
+        }
+    }
+
+    /**
+     * Reads the task stored in the {@link #COLUMNS} fields starting at {@code offset}.
+     */
+    static Task read(RowReader row, int offset) {
+        if (row.fields() - offset != COLUMNS) {
+            throw new ManagerSaveException("CSV: ожидалось " + COLUMNS + " колонок, получено "
+                    + (row.fields() - offset) + ": " + row);
+        }
+        int id = row.intValue(offset);
+        TaskType type = row.enumValue(offset + 1, TYPES);
+        String name = row.string(offset + 2);
+        TaskStatus status = row.enumValue(offset + 3, STATUSES);
+        String description = row.string(offset + 4);
+        Duration duration = row.isEmpty(offset + 6) ? null : Duration.ofMinutes(row.longValue(offset + 6));
+        LocalDateTime startTime = row.isEmpty(offset + 7) ? null : row.dateTime(offset + 7);
+
+        Task task = switch (type) {
+            case TASK -> new Task(name, description, status, duration, startTime);
+            case EPIC -> {
+                Epic epic = new Epic(name, description);
+                epic.setStatus(status);
+                yield epic;
+            }
+            case SUBTASK -> {
+                if (row.isEmpty(offset + 5)) {
+                    throw new ManagerSaveException("CSV: у сабтаска пустой epicId: " + row);
+                }
+                yield new Subtask(name, description, status, row.intValue(offset + 5), duration, startTime);
+            }
+        };
+        task.setId(id);
+        return task;
+    }
+
+    static StringBuilder field(StringBuilder out, String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return out.append(value);
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        return out.append('"');
+    }
+
+    /**
+     * Bytes {@code c} takes in UTF-8; each half of a surrogate pair counts two.
+     */
+    static int utf8Length(char c) {
+        if (c < 0x80) {
+            return 1;
+        }
+        if (c < 0x800 || Character.isSurrogate(c)) {
+            return 2;
+        }
+        return 3;
+    }
+
+    /**
+     * Streaming record reader. Blank lines are skipped; a record ends at an unquoted LF or CRLF.
+     * It also tracks the UTF-8 byte range of each record, so the record can be read again in place.
+     */
+    static final class RowReader {
+        private final Reader in;
+        private final char[] buffer;
+        private int position;
+        private int limit;
+        private long consumed;
+        private long recordStart;
+
+        private char[] chars = new char[256];
+        private int length;
+        private int[] bounds = new int[2 * (COLUMNS + 1)];
+        private int count;
+        private boolean terminated;
+
+        RowReader(Reader in) {
+            this.in = in;
+            this.buffer = new char[1 << 14];
+        }
+
+        /**
+         * Reads records straight out of {@code source} without copying it.
+         */
+        RowReader(char[] source, int offset, int length) {
+            this.in = null;
+            this.buffer = source;
+            this.position = offset;
+            this.limit = offset + length;
+        }
+
+        /**
+         * Moves to the next record, returning {@code false} at the end of input.
+         */
+        boolean next() throws IOException {
+            while (true) {
+                count = 0;
+                length = 0;
+                int c = read();
+                if (c < 0) {
+                    return false;
+                }
+                if (c == '\n' || c == '\r') {
+                    continue;
+                }
+                unread();
+                recordStart = consumed;
+                readRecord();
+                if (count > 1 || !isBlank(0)) {
+                    return true;
+                }
+            }
+        }
+
+        int fields() {
+            return count;
+        }
+
+        /**
+         * Whether the current record ended with a line break rather than the end of input.
+         */
+        boolean terminated() {
+            return terminated;
+        }
+
+        /**
+         * Whether the whole input has been read.
+         */
+        boolean atEnd() throws IOException {
+            if (read() < 0) {
+                return true;
+            }
+            unread();
+            return false;
+        }
+
+        /**
+         * Byte offset of the current record from the start of the input.
+         */
+        long recordOffset() {
+            return recordStart;
+        }
+
+        /**
+         * Byte length of the current record, its line break included.
+         */
+        int recordLength() {
+            return (int) (consumed - recordStart);
+        }
+
+        boolean isEmpty(int field) {
+            return bounds[2 * field] == bounds[2 * field + 1];
+        }
+
+        String string(int field) {
+            int start = bounds[2 * field];
+            return new String(chars, start, bounds[2 * field + 1] - start);
+        }
+
+        int intValue(int field) {
+            long value = longValue(field);
+            if (value != (int) value) {
+                throw invalid(field, "число вне диапазона");
+            }
+            return (int) value;
+        }
+
+        long longValue(int field) {
+            int start = bounds[2 * field];
+            int end = bounds[2 * field + 1];
+            boolean negative = start < end && chars[start] == '-';
+            int i = negative ? start + 1 : start;
+            if (i == end || end - i > 18) {
+                throw invalid(field, "ожидалось число");
+            }
+            long value = 0;
+            for (; i < end; i++) {
+                int digit = chars[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    throw invalid(field, "ожидалось число");
+                }
+                value = value * 10 + digit;
+            }
+            return negative ? -value : value;
+        }
+
+        <E extends Enum<E>> E enumValue(int field, E[] values) {
+            int start = bounds[2 * field];
+            int fieldLength = bounds[2 * field + 1] - start;
+            for (E value : values) {
+                String name = value.name();
+                if (name.length() == fieldLength && matches(name, start)) {
+                    return value;
+                }
+            }
+            throw invalid(field, "неизвестное значение");
+        }
+
+        /**
+         * Parses {@code yyyy-MM-ddTHH:mm[:ss[.fraction]]} in place and falls back to
+         * {@link LocalDateTime#parse} for anything else, such as years past 9999.
+         */
+        LocalDateTime dateTime(int field) {
+            int start = bounds[2 * field];
+            int end = bounds[2 * field + 1];
+            int fieldLength = end - start;
+            try {
+                if (fieldLength >= 16 && chars[start + 4] == '-' && chars[start + 7] == '-'
+                        && chars[start + 10] == 'T' && chars[start + 13] == ':') {
+                    int second = 0;
+                    int nano = 0;
+                    if (fieldLength >= 19 && chars[start + 16] == ':') {
+                        second = digits(start + 17, 2);
+                        if (fieldLength > 19) {
+                            if (chars[start + 19] != '.' || fieldLength > 29) {
+                                throw invalid(field, "неверное время");
+                            }
+                            int fraction = fieldLength - 20;
+                            nano = digits(start + 20, fraction);
+                            for (int i = fraction; i < 9; i++) {
+                                nano *= 10;
+                            }
+                        }
+                    } else if (fieldLength != 16) {
+                        throw invalid(field, "неверное время");
+                    }
+                    return LocalDateTime.of(digits(start, 4), digits(start + 5, 2), digits(start + 8, 2),
+                            digits(start + 11, 2), digits(start + 14, 2), second, nano);
+                }
+                return LocalDateTime.parse(string(field));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw invalid(field, "неверное время");
+            } catch (DateTimeException e) {
+                throw new ManagerSaveException("CSV: неверное время в колонке " + (field + 1) + ": " + this, e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                field(line, string(i));
+            }
+            return line.toString();
+        }
+
+        private void readRecord() throws IOException {
+            terminated = false;
+            while (true) {
+                int start = length;
+                int c = read();
+                if (c == '"') {
+                    while (true) {
+                        c = read();
+                        if (c < 0) {
+                            throw new ManagerSaveException("CSV: незакрытая кавычка");
+                        }
+                        if (c == '"') {
+                            c = read();
+                            if (c != '"') {
+                                break;
+                            }
+                        }
+                        append((char) c);
+                    }
+                    if (c >= 0 && c != ',' && c != '\n' && c != '\r') {
+                        throw new ManagerSaveException("CSV: символы после закрывающей кавычки");
+                    }
+                } else {
+                    while (c >= 0 && c != ',' && c != '\n' && c != '\r') {
+                        append((char) c);
+                        c = read();
+                    }
+                }
+                addField(start, length);
+                if (c == ',') {
+                    continue;
+                }
+                terminated = c >= 0;
+                if (c == '\r' && read() != '\n' && limit > 0) {
+                    unread();
+                }
+                return;
+            }
+        }
+
+        private int read() throws IOException {
+            if (position == limit) {
+                int read = in == null ? -1 : in.read(buffer, 0, buffer.length);
+                if (read <= 0) {
+                    position = 0;
+                    limit = 0;
+                    return -1;
+                }
+                position = 0;
+                limit = read;
+            }
+            char c = buffer[position++];
+            consumed += utf8Length(c);
+            return c;
+        }
+
+        private void unread() {
+            consumed -= utf8Length(buffer[--position]);
+        }
+
+        private void append(char c) {
+            if (length == chars.length) {
+                chars = Arrays.copyOf(chars, chars.length * 2);
+            }
+            chars[length++] = c;
+        }
+
+        private void addField(int start, int end) {
+            if (2 * count + 1 >= bounds.length) {
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            }
+            bounds[2 * count] = start;
+            bounds[2 * count + 1] = end;
+            count++;
+        }
+
+        private boolean isBlank(int field) {
+            for (int i = bounds[2 * field]; i < bounds[2 * field + 1]; i++) {
+                if (!Character.isWhitespace(chars[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matches(String name, int start) {
+            for (int i = 0; i < name.length(); i++) {
+                if (chars[start + i] != name.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int digits(int start, int n) {
+            int value = 0;
+            for (int i = start; i < start + n; i++) {
+                int digit = chars[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new NumberFormatException();
+                }
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        private ManagerSaveException invalid(int field, String reason) {
+            return new ManagerSaveException("CSV: " + reason + " в колонке " + (field + 1) + ": " + this);
+        }
+    }
+}
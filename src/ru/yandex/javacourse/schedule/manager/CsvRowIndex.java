@@ -0,0 +1,96 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import ru.yandex.javacourse.schedule.tasks.Task;
+
+/**
+ * Byte ranges of the rows in a CSV snapshot, by id, so one row can be read back with a single positioned read.
+ * The snapshot must not be rewritten while the index is in use.
+ */
+final class CsvRowIndex implements Closeable {
+    private final Path path;
+    private FileChannel channel;
+    private long[] offsets = new long[16];
+    private int[] lengths = new int[16];
+    private long reads;
+
+    CsvRowIndex(Path path) {
+        this.path = path;
+    }
+
+    void put(int id, long offset, int length) {
+        if (id < 0) {
+            throw new ManagerSaveException("CSV: отрицательный id " + id);
+        }
+        if (id >= offsets.length) {
+            int capacity = Math.max(offsets.length * 2, id + 1);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        offsets[id] = offset;
+        lengths[id] = length;
+    }
+
+    Task read(int id) {
+        if (id < 0 || id >= lengths.length || lengths[id] == 0) {
+            throw new ManagerSaveException("CSV: нет строки с id " + id + " в " + path);
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(lengths[id]);
+        synchronized (this) {
+            reads++;
+        }
+        try {
+            FileChannel source = channel();
+            while (bytes.hasRemaining()) {
+                if (source.read(bytes, offsets[id] + bytes.position()) < 0) {
+                    throw new ManagerSaveException("CSV: файл обрезан: " + path);
+                }
+            }
+            bytes.flip();
+            CharBuffer chars = StandardCharsets.UTF_8.decode(bytes);
+            CsvCodec.RowReader row = new CsvCodec.RowReader(chars.array(), chars.arrayOffset(), chars.remaining());
+            if (!row.next()) {
+                throw new ManagerSaveException("CSV: пустая строка с id " + id + " в " + path);
+            }
+            Task task = CsvCodec.read(row, 0);
+            if (task.getId() != id) {
+                throw new ManagerSaveException("CSV: по смещению строки " + id + " найдена строка " + task.getId());
+            }
+            return task;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось прочитать файл: " + path, e);
+        }
+    }
+
+    /**
+     * Rows read from disk so far.
+     */
+    synchronized long reads() {
+        return reads;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    // reopened after close, since the manager stays usable once closed
+    private synchronized FileChannel channel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        }
+        return channel;
+    }
+}
@@ -0,0 +1,20 @@
+package ru.yandex.javacourse.schedule.manager;
+
+/**
+ * When {@link FileBackedTaskManager} writes its changes to disk. Every write is forced to the device before
+ * it counts as done.
+ */
+public enum Durability {
+    /**
+     * Every change is written before the call returns.
+     */
+    PER_OPERATION,
+    /**
+     * Changes are written by a background thread at most once per interval, so a burst costs one write.
+     */
+    GROUP_COMMIT,
+    /**
+     * Changes are written only by {@link FileBackedTaskManager#flush()} and {@link FileBackedTaskManager#close()}.
+     */
+    ON_CLOSE
+}
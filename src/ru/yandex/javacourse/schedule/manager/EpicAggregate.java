@@ -0,0 +1,95 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import static ru.yandex.javacourse.schedule.tasks.TaskStatus.IN_PROGRESS;
+import static ru.yandex.javacourse.schedule.tasks.TaskStatus.NEW;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import ru.yandex.javacourse.schedule.tasks.Subtask;
+import ru.yandex.javacourse.schedule.tasks.TaskStatus;
+import ru.yandex.javacourse.schedule.util.IntMap;
+import ru.yandex.javacourse.schedule.util.OpenAddressingIntMap;
+
+/**
+ * Running status and time totals of one epic's subtasks.
+ * <p>
+ * Each subtask's contribution is remembered by id, so replacing or removing it costs O(log k)
+ * regardless of whether the caller mutated the stored object in place.
+ */
+final class EpicAggregate {
+
+    private record Contribution(TaskStatus status, Duration duration, LocalDateTime start, LocalDateTime end) {
+    }
+
+    private final IntMap<Contribution> contributions = new OpenAddressingIntMap<>();
+    private final EnumMap<TaskStatus, Integer> statusCounts = new EnumMap<>(TaskStatus.class);
+    private final TreeMap<LocalDateTime, Integer> starts = new TreeMap<>();
+    private final TreeMap<LocalDateTime, Integer> ends = new TreeMap<>();
+    private Duration totalDuration = Duration.ZERO;
+
+    void put(Subtask subtask) {
+        remove(subtask.getId());
+        Contribution contribution = (subtask.getStartTime() == null || subtask.getDuration() == null)
+                ? new Contribution(subtask.getStatus(), null, null, null)
+                : new Contribution(subtask.getStatus(), subtask.getDuration(),
+                subtask.getStartTime(), subtask.getEndTime());
+        contributions.put(subtask.getId(), contribution);
+        statusCounts.merge(contribution.status(), 1, Integer::sum);
+        if (contribution.duration() != null) {
+            totalDuration = totalDuration.plus(contribution.duration());
+            starts.merge(contribution.start(), 1, Integer::sum);
+            ends.merge(contribution.end(), 1, Integer::sum);
+        }
+    }
+
+    void remove(int subtaskId) {
+        Contribution contribution = contributions.remove(subtaskId);
+        if (contribution == null) {
+            return;
+        }
+        decrement(statusCounts, contribution.status());
+        if (contribution.duration() != null) {
+            totalDuration = totalDuration.minus(contribution.duration());
+            decrement(starts, contribution.start());
+            decrement(ends, contribution.end());
+        }
+    }
+
+    void clear() {
+        contributions.clear();
+        statusCounts.clear();
+        starts.clear();
+        ends.clear();
+        totalDuration = Duration.ZERO;
+    }
+
+    TaskStatus status() {
+        if (statusCounts.isEmpty()) {
+            return NEW;
+        }
+        if (statusCounts.size() == 1 && !statusCounts.containsKey(IN_PROGRESS)) {
+            return statusCounts.keySet().iterator().next();
+        }
+        return IN_PROGRESS;
+    }
+
+    Duration duration() {
+        return starts.isEmpty() ? null : totalDuration;
+    }
+
+    LocalDateTime startTime() {
+        return starts.isEmpty() ? null : starts.firstKey();
+    }
+
+    LocalDateTime endTime() {
+        return ends.isEmpty() ? null : ends.lastKey();
+    }
+
+    private static <K> void decrement(Map<K, Integer> counts, K key) {
+        counts.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+    }
+}
@@ -0,0 +1,631 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import ru.yandex.javacourse.schedule.tasks.Epic;
+import ru.yandex.javacourse.schedule.tasks.Subtask;
+import ru.yandex.javacourse.schedule.tasks.Task;
+import ru.yandex.javacourse.schedule.tasks.TaskStatus;
+import ru.yandex.javacourse.schedule.tasks.TaskType;
+import ru.yandex.javacourse.schedule.util.IntSet;
+import ru.yandex.javacourse.schedule.util.PersistentIntMap;
+
+/**
+ * Task manager that applies every mutation on a single writer thread.
+ * <p>
+ * Calls are queued as commands in a bounded ring buffer. The writer drains whatever has accumulated,
+ * applies the batch to the delegate inside {@link TaskManager#inBatch} (one save for a file-backed delegate),
+ * publishes an immutable snapshot and only then completes the futures, so a caller always reads its own writes.
+ * The snapshot holds frozen copies (see {@link Task#snapshot()}) in persistent maps, and a batch replaces only
+ * the tasks its commands touched, together with the epics of touched subtasks. Reads by id and of whole lists
+ * are served from the snapshot without locking. The {@link TaskManager} methods return mutable copies, so a task
+ * read, changed and passed to an update method works as with any other manager; {@link #snapshot()} hands out
+ * the frozen board itself. Tasks passed to the update methods are copied when the call is made.
+ * <p>
+ * History views are queued without waiting, and {@link #getHistory()} goes through the queue,
+ * so it observes every view recorded before it. Calendar and status queries go through the queue too,
+ * since the snapshot keeps no ordering, and return the snapshot's copies.
+ */
+public class EventLoopTaskManager implements TaskManager, AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private record Command<R>(Function<TaskManager, R> action, boolean mutating, CompletableFuture<R> result) {
+        /**
+         * Applies the command and returns the completion to run once the new snapshot is published.
+         */
+        Runnable apply(TaskManager manager) {
+            try {
+                R value = action.apply(manager);
+                return () -> result.complete(value);
+            } catch (RuntimeException e) {
+                return () -> result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final Command<Void> STOP = new Command<>(manager -> null, false, new CompletableFuture<>());
+
+    private final TaskManager delegate;
+    // looks a stored task up without recording a view, or null to rebuild the snapshot after each batch
+    private final IntFunction<Task> lookup;
+    private final BlockingQueue<Command<?>> commands;
+    // held shared to check and enqueue, exclusively to close, so no command can follow STOP
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private final Thread writer;
+    private volatile PersistentTaskManager.Board snapshot;
+    private boolean closed;
+    // changes of the current batch, written only by the writer thread
+    private final IntSet touched = new IntSet();
+    private final EnumSet<TaskType> cleared = EnumSet.noneOf(TaskType.class);
+
+    public EventLoopTaskManager(TaskManager delegate) {
+        this(delegate, DEFAULT_CAPACITY);
+    }
+
+    public EventLoopTaskManager(TaskManager delegate, int capacity) {
+        this.delegate = delegate;
+        this.lookup = lookupOf(delegate);
+        this.commands = new ArrayBlockingQueue<>(capacity);
+        this.snapshot = takeSnapshot();
+        this.writer = new Thread(this::runWriter, "task-manager-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Returns the last published state; later changes do not affect it.
+     */
+    public PersistentTaskManager.Board snapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return copies(snapshot.tasks().values());
+    }
+
+    @Override
+    public List<Subtask> getSubtasks() {
+        return copies(snapshot.subtasks().values());
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return copies(snapshot.epics().values());
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        PersistentTaskManager.Board board = snapshot;
+        List<Subtask> result = new ArrayList<>();
+        Epic epic = board.epics().get(epicId);
+        if (epic != null) {
+            epic.forEachSubtaskId(id -> {
+                Subtask subtask = board.subtasks().get(id);
+                if (subtask != null) {
+                    result.add(subtask.copy());
+                }
+            });
+        }
+        return result;
+    }
+
+    @Override
+    public Task getTask(int id) {
+        Task task = snapshot.tasks().get(id);
+        if (task == null) {
+            return null;
+        }
+        query(manager -> manager.getTask(id));
+        return task.copy();
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        Subtask subtask = snapshot.subtasks().get(id);
+        if (subtask == null) {
+            return null;
+        }
+        query(manager -> manager.getSubtask(id));
+        return subtask.copy();
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        Epic epic = snapshot.epics().get(id);
+        if (epic == null) {
+            return null;
+        }
+        query(manager -> manager.getEpic(id));
+        return epic.copy();
+    }
+
+    @Override
+    public int addNewTask(Task task) {
+        return await(addNewTaskAsync(task));
+    }
+
+    @Override
+    public int addNewEpic(Epic epic) {
+        return await(addNewEpicAsync(epic));
+    }
+
+    @Override
+    public Integer addNewSubtask(Subtask subtask) {
+        return await(addNewSubtaskAsync(subtask));
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        await(updateTaskAsync(task));
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        await(updateEpicAsync(epic));
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        await(updateSubtaskAsync(subtask));
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        await(deleteTaskAsync(id));
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        await(deleteEpicAsync(id));
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        await(deleteSubtaskAsync(id));
+    }
+
+    @Override
+    public void deleteTasks() {
+        await(deleteTasksAsync());
+    }
+
+    @Override
+    public void deleteSubtasks() {
+        await(deleteSubtasksAsync());
+    }
+
+    @Override
+    public void deleteEpics() {
+        await(deleteEpicsAsync());
+    }
+
+    @Override
+    public List<Integer> addNewTasks(List<? extends Task> tasks) {
+        return await(addNewTasksAsync(tasks));
+    }
+
+    @Override
+    public List<Integer> addNewSubtasks(List<Subtask> subtasks) {
+        return await(addNewSubtasksAsync(subtasks));
+    }
+
+    @Override
+    public void updateAll(List<? extends Task> tasks) {
+        await(updateAllAsync(tasks));
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        await(deleteAllAsync(ids));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return fromSnapshot(await(query(TaskManager::getHistory)));
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskType type, TaskStatus status) {
+        return fromSnapshot(await(query(manager -> manager.getTasksByStatus(type, status))));
+    }
+
+    @Override
+    public int countByStatus(TaskType type, TaskStatus status) {
+        return await(query(manager -> manager.countByStatus(type, status)));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return fromSnapshot(await(query(TaskManager::getPrioritizedTasks)));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        TimeIndex.checkRange(from, to);
+        return fromSnapshot(await(query(manager -> manager.getPrioritizedTasks(from, to))));
+    }
+
+    /**
+     * Returns a cursor over at most {@code limit} tasks read in one query.
+     */
+    @Override
+    public Iterator<Task> iteratePrioritizedTasks(LocalDateTime from, LocalDateTime to, int limit) {
+        TimeIndex.checkRange(from, to);
+        return fromSnapshot(await(query(manager -> {
+            List<Task> range = new ArrayList<>();
+            manager.iteratePrioritizedTasks(from, to, limit).forEachRemaining(range::add);
+            return range;
+        }))).iterator();
+    }
+
+    @Override
+    public Optional<LocalDateTime> findFreeSlot(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter) {
+        return await(query(manager -> manager.findFreeSlot(duration, notBefore, notAfter)));
+    }
+
+    @Override
+    public List<LocalDateTime> findFreeSlots(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter,
+                                             int limit) {
+        return await(query(manager -> manager.findFreeSlots(duration, notBefore, notAfter, limit)));
+    }
+
+    public CompletableFuture<Integer> addNewTaskAsync(Task task) {
+        return submit(manager -> touch(manager.addNewTask(writable(task))));
+    }
+
+    public CompletableFuture<Integer> addNewEpicAsync(Epic epic) {
+        return submit(manager -> touch(manager.addNewEpic(epic.isFrozen() ? epic.copy() : epic)));
+    }
+
+    public CompletableFuture<Integer> addNewSubtaskAsync(Subtask subtask) {
+        return submit(manager -> {
+            Integer id = manager.addNewSubtask(subtask.isFrozen() ? subtask.copy() : subtask);
+            if (id != null) {
+                touch(id);
+            }
+            return id;
+        });
+    }
+
+    public CompletableFuture<Void> updateTaskAsync(Task task) {
+        Task copy = task.copy();
+        return run(manager -> {
+            manager.updateTask(copy);
+            touch(copy.getId());
+        });
+    }
+
+    public CompletableFuture<Void> updateEpicAsync(Epic epic) {
+        Epic copy = epic.copy();
+        return run(manager -> {
+            manager.updateEpic(copy);
+            touch(copy.getId());
+        });
+    }
+
+    public CompletableFuture<Void> updateSubtaskAsync(Subtask subtask) {
+        Subtask copy = subtask.copy();
+        return run(manager -> {
+            manager.updateSubtask(copy);
+            touch(copy.getId());
+        });
+    }
+
+    public CompletableFuture<Void> deleteTaskAsync(int id) {
+        return run(manager -> {
+            manager.deleteTask(id);
+            touch(id);
+        });
+    }
+
+    public CompletableFuture<Void> deleteEpicAsync(int id) {
+        return run(manager -> {
+            manager.deleteEpic(id);
+            touch(id);
+        });
+    }
+
+    public CompletableFuture<Void> deleteSubtaskAsync(int id) {
+        return run(manager -> {
+            manager.deleteSubtask(id);
+            touch(id);
+        });
+    }
+
+    public CompletableFuture<Void> deleteTasksAsync() {
+        return run(manager -> {
+            manager.deleteTasks();
+            cleared.add(TaskType.TASK);
+        });
+    }
+
+    public CompletableFuture<Void> deleteSubtasksAsync() {
+        return run(manager -> {
+            manager.deleteSubtasks();
+            cleared.add(TaskType.SUBTASK);
+        });
+    }
+
+    public CompletableFuture<Void> deleteEpicsAsync() {
+        return run(manager -> {
+            manager.deleteEpics();
+            cleared.add(TaskType.EPIC);
+        });
+    }
+
+    public CompletableFuture<List<Integer>> addNewTasksAsync(List<? extends Task> tasks) {
+        return submit(manager -> touchAll(manager.addNewTasks(tasks.stream().map(this::writable).toList())));
+    }
+
+    public CompletableFuture<List<Integer>> addNewSubtasksAsync(List<Subtask> subtasks) {
+        return submit(manager -> touchAll(manager.addNewSubtasks(subtasks.stream()
+                .map(subtask -> subtask.isFrozen() ? subtask.copy() : subtask)
+                .toList())));
+    }
+
+    public CompletableFuture<Void> updateAllAsync(List<? extends Task> tasks) {
+        List<Task> copies = tasks.stream().map(Task::copy).toList();
+        return run(manager -> {
+            manager.updateAll(copies);
+            copies.forEach(task -> touch(task.getId()));
+        });
+    }
+
+    public CompletableFuture<Void> deleteAllAsync(Collection<Integer> ids) {
+        return run(manager -> {
+            manager.deleteAll(ids);
+            ids.forEach(this::touch);
+        });
+    }
+
+    /**
+     * Applies the commands already queued and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        Lock lock = closeLock.writeLock();
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            commands.put(STOP);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<Void> run(Consumer<TaskManager> action) {
+        return submit(manager -> {
+            action.accept(manager);
+            return null;
+        });
+    }
+
+    private <R> CompletableFuture<R> submit(Function<TaskManager, R> action) {
+        return enqueue(action, true);
+    }
+
+    /**
+     * Queues a call that does not change tasks, so it does not force a new snapshot.
+     */
+    private <R> CompletableFuture<R> query(Function<TaskManager, R> action) {
+        return enqueue(action, false);
+    }
+
+    private <R> CompletableFuture<R> enqueue(Function<TaskManager, R> action, boolean mutating) {
+        Lock lock = closeLock.readLock();
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Менеджер задач закрыт");
+            }
+            CompletableFuture<R> result = new CompletableFuture<>();
+            commands.put(new Command<>(action, mutating, result));
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Прервано ожидание места в очереди команд", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int touch(int id) {
+        touched.add(id);
+        return id;
+    }
+
+    private List<Integer> touchAll(List<Integer> ids) {
+        for (Integer id : ids) {
+            if (id != null) {
+                touched.add(id);
+            }
+        }
+        return ids;
+    }
+
+    // a frozen task cannot take its new id, so the delegate gets a copy
+    private Task writable(Task task) {
+        return task.isFrozen() ? task.copy() : task;
+    }
+
+    /**
+     * Replaces tasks read from the delegate by copies of the snapshot's; tasks deleted since are dropped.
+     */
+    private List<Task> fromSnapshot(List<Task> live) {
+        PersistentTaskManager.Board board = snapshot;
+        List<Task> result = new ArrayList<>(live.size());
+        for (Task task : live) {
+            Task frozen = board.find(task.getId());
+            if (frozen != null) {
+                result.add(frozen.copy());
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Task> List<T> copies(List<T> frozen) {
+        List<T> result = new ArrayList<>(frozen.size());
+        for (T task : frozen) {
+            result.add((T) task.copy());
+        }
+        return result;
+    }
+
+    private static <R> R await(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void runWriter() {
+        List<Command<?>> batch = new ArrayList<>();
+        boolean stopped = false;
+        while (!stopped) {
+            try {
+                batch.add(commands.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            commands.drainTo(batch);
+            stopped = batch.remove(STOP);
+            applyBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void applyBatch(List<Command<?>> batch) {
+        List<Runnable> completions = new ArrayList<>(batch.size());
+        try {
+            delegate.inBatch(() -> {
+                for (Command<?> command : batch) {
+                    completions.add(command.apply(delegate));
+                }
+            });
+        } catch (RuntimeException e) {
+            // the batch could not be saved: its changes stay in memory, but every caller sees the failure
+            clearChanges();
+            snapshot = takeSnapshot();
+            batch.forEach(command -> command.result().completeExceptionally(e));
+            return;
+        }
+        if (batch.stream().anyMatch(Command::mutating)) {
+            snapshot = lookup == null ? takeSnapshot() : applyChanges(snapshot);
+        }
+        clearChanges();
+        completions.forEach(Runnable::run);
+    }
+
+    private PersistentTaskManager.Board takeSnapshot() {
+        PersistentIntMap<Task> tasks = PersistentIntMap.empty();
+        for (Task task : delegate.getTasks()) {
+            tasks = tasks.put(task.getId(), task.snapshot());
+        }
+        PersistentIntMap<Subtask> subtasks = PersistentIntMap.empty();
+        for (Subtask subtask : delegate.getSubtasks()) {
+            subtasks = subtasks.put(subtask.getId(), subtask.snapshot());
+        }
+        PersistentIntMap<Epic> epics = PersistentIntMap.empty();
+        for (Epic epic : delegate.getEpics()) {
+            epics = epics.put(epic.getId(), epic.snapshot());
+        }
+        return new PersistentTaskManager.Board(tasks, subtasks, epics);
+    }
+
+    /**
+     * Copies the tasks touched by the batch into a new snapshot. A touched subtask also refreshes its old and new
+     * epic, and a deleted epic drops its old subtasks; an epic's own update leaves its subtasks alone.
+     */
+    private PersistentTaskManager.Board applyChanges(PersistentTaskManager.Board board) {
+        PersistentIntMap<Task> tasks = cleared.contains(TaskType.TASK) ? PersistentIntMap.empty() : board.tasks();
+        PersistentIntMap<Subtask> subtasks = cleared.contains(TaskType.SUBTASK) || cleared.contains(TaskType.EPIC)
+                ? PersistentIntMap.empty() : board.subtasks();
+        PersistentIntMap<Epic> epics = cleared.contains(TaskType.EPIC) ? PersistentIntMap.empty() : board.epics();
+        if (cleared.contains(TaskType.SUBTASK)) {
+            board.epics().forEach(epic -> touched.add(epic.getId()));
+        }
+        for (int id : touched.toArray()) {
+            Subtask subtask = board.subtasks().get(id);
+            if (subtask != null) {
+                touched.add(subtask.getEpicId());
+            }
+        }
+        IntSet epicsOfSubtasks = new IntSet();
+        for (int id : touched.toArray()) {
+            Task task = lookup.apply(id);
+            if (task instanceof Epic epic) {
+                epics = epics.put(id, epic.snapshot());
+            } else if (task instanceof Subtask subtask) {
+                subtasks = subtasks.put(id, subtask.snapshot());
+                epicsOfSubtasks.add(subtask.getEpicId());
+            } else if (task != null) {
+                tasks = tasks.put(id, task.snapshot());
+            } else {
+                tasks = tasks.remove(id);
+                subtasks = subtasks.remove(id);
+                Epic removed = epics.get(id);
+                if (removed != null) {
+                    epics = epics.remove(id);
+                    for (int subtaskId : removed.getSubtaskIds()) {
+                        subtasks = subtasks.remove(subtaskId);
+                    }
+                }
+            }
+        }
+        for (int id : epicsOfSubtasks.toArray()) {
+            if (!touched.contains(id) && lookup.apply(id) instanceof Epic epic) {
+                epics = epics.put(id, epic.snapshot());
+            }
+        }
+        return new PersistentTaskManager.Board(tasks, subtasks, epics);
+    }
+
+    private void clearChanges() {
+        touched.clear();
+        cleared.clear();
+    }
+
+    private static IntFunction<Task> lookupOf(TaskManager delegate) {
+        if (delegate instanceof InMemoryTaskManager manager) {
+            return manager::findStored;
+        }
+        if (delegate instanceof PersistentTaskManager manager) {
+            return id -> manager.snapshot().find(id);
+        }
+        return null;
+    }
+}
@@ -1,283 +1,1202 @@
 package ru.yandex.javacourse.schedule.manager;
 
 import ru.yandex.javacourse.schedule.tasks.*;
+import ru.yandex.javacourse.schedule.util.IntMap;
+import ru.yandex.javacourse.schedule.util.IntSet;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 
 public class FileBackedTaskManager extends InMemoryTaskManager {
 
+    /**
+     * Journal size in bytes after which it is rolled into a fresh snapshot.
+     */
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 4L << 20;
+
+    /**
+     * Tasks and subtasks each kept in memory by a manager opened with {@link #openLazy(File)}.
+     */
+    public static final int DEFAULT_LAZY_CACHE_SIZE = 10_000;
+
     private final Path file;
-    private static final String HEADER = "id,type,name,status,description,epic,duration,startTime";
+    private int batchDepth;
+    private boolean dirty;
+
+    private final SaveMode saveMode;
+    private final long compactionThreshold;
+    private final Path journalPath;
+    private final Path compactingJournalPath;
+    private boolean loaded;
+    private boolean journalOnDisk;
+    private Journal journal;
+    private ExecutorService compactor;
+    private Future<?> compaction;
+
+    private final SnapshotFormat snapshotFormat;
+    private final Durability durability;
+    private final Duration groupCommitInterval;
+    private final ReentrantLock stateLock = new ReentrantLock();
+    private final ReentrantLock ioLock = new ReentrantLock();
+    private ScheduledExecutorService writer;
+    private boolean writeBackScheduled;
+    // a per-operation write waiting for the state lock to be released
+    private boolean writePending;
+    private RuntimeException writeFailure;
+    private long changes;
+    private long writes;
+    private CsvRowIndex rowIndex;
+
+    private final IntSet dirtySegments = new IntSet();
+    private final IntSet segmentsOnDisk = new IntSet();
+    private SegmentedSnapshot.Manifest segments;
+    private boolean segmentDirectoryOnDisk;
+
+    private final LoggedHistoryManager history;
+
+    /**
+     * Changes made and writes performed; the difference is what group commit saved.
+     */
+    public record SaveStats(long changes, long writes) {
+        public long coalesced() {
+            return Math.max(0, changes - writes);
+        }
+    }
+
+    /**
+     * How a manager stores its state: the in-memory maps, the file layout and when changes reach the disk.
+     * Start from {@link #DEFAULT} and change what differs.
+     */
+    public record Options(StorageType storageType, SaveMode saveMode, long compactionThreshold,
+                          Durability durability, Duration groupCommitInterval, SnapshotFormat snapshotFormat) {
+        /**
+         * Hash maps, a CSV snapshot rewritten on every change.
+         */
+        public static final Options DEFAULT = new Options(StorageType.HASH_MAP, SaveMode.SNAPSHOT,
+                DEFAULT_COMPACTION_THRESHOLD, Durability.PER_OPERATION, Duration.ZERO, SnapshotFormat.CSV);
+
+        public Options {
+            if (compactionThreshold <= 0) {
+                throw new IllegalArgumentException("Порог сжатия журнала должен быть положительным");
+            }
+            if (groupCommitInterval == null || groupCommitInterval.isNegative()) {
+                throw new IllegalArgumentException("Интервал записи не может быть отрицательным");
+            }
+        }
+
+        public Options withStorageType(StorageType storageType) {
+            return new Options(storageType, saveMode, compactionThreshold, durability, groupCommitInterval,
+                    snapshotFormat);
+        }
+
+        public Options withSaveMode(SaveMode saveMode) {
+            return new Options(storageType, saveMode, compactionThreshold, durability, groupCommitInterval,
+                    snapshotFormat);
+        }
+
+        public Options withCompactionThreshold(long compactionThreshold) {
+            return new Options(storageType, saveMode, compactionThreshold, durability, groupCommitInterval,
+                    snapshotFormat);
+        }
+
+        /**
+         * Sets when changes are written; {@code groupCommitInterval} only matters for {@link Durability#GROUP_COMMIT}.
+         */
+        public Options withDurability(Durability durability, Duration groupCommitInterval) {
+            return new Options(storageType, saveMode, compactionThreshold, durability, groupCommitInterval,
+                    snapshotFormat);
+        }
+
+        public Options withSnapshotFormat(SnapshotFormat snapshotFormat) {
+            return new Options(storageType, saveMode, compactionThreshold, durability, groupCommitInterval,
+                    snapshotFormat);
+        }
+    }
 
     public FileBackedTaskManager(Path file) {
+        this(file, Options.DEFAULT);
+    }
+
+    public FileBackedTaskManager(Path file, Options options) {
+        this(file, options, options.storageType().newMap(), options.storageType().newMap(),
+                new LoggedHistoryManager(historyPathOf(file)));
+    }
+
+    private FileBackedTaskManager(Path file, Options options, IntMap<Task> tasks, IntMap<Subtask> subtasks,
+                                  LoggedHistoryManager history) {
+        super(options.storageType(), history::attach, tasks, subtasks);
+        if (options.saveMode() == SaveMode.SEGMENTED && options.snapshotFormat() != SnapshotFormat.CSV) {
+            throw new IllegalArgumentException("Сегменты сохраняются только в CSV");
+        }
         this.file = file;
+        this.saveMode = options.saveMode();
+        this.compactionThreshold = options.compactionThreshold();
+        this.snapshotFormat = options.snapshotFormat();
+        this.durability = options.durability();
+        this.groupCommitInterval = options.groupCommitInterval();
+        this.journalPath = journalPathOf(file);
+        this.compactingJournalPath = compactingJournalPathOf(file);
+        this.journalOnDisk = Files.exists(journalPath) || Files.exists(compactingJournalPath);
+        this.segmentDirectoryOnDisk = Files.isDirectory(SegmentedSnapshot.directoryOf(file));
+        this.history = history;
     }
 
     @Override
     public int addNewEpic(Epic epic) {
-        int id = super.addNewEpic(epic);
-        save();
-        return id;
+        return locked(() -> {
+            int id = super.addNewEpic(epic);
+            savePut(id);
+            return id;
+        });
     }
 
     @Override
     public int addNewTask(Task task) {
-        int id = super.addNewTask(task);
-        save();
-        return id;
+        return locked(() -> {
+            int id = super.addNewTask(task);
+            savePut(id);
+            return id;
+        });
     }
 
     @Override
     public Integer addNewSubtask(Subtask subtask) {
-        Integer id = super.addNewSubtask(subtask);
-        save();
-        return id;
+        return locked(() -> {
+            Integer id = super.addNewSubtask(subtask);
+            if (id != null) {
+                savePut(id);
+            }
+            return id;
+        });
     }
 
     @Override
     public void updateTask(Task task) {
-        super.updateTask(task);
-        save();
+        locked(() -> {
+            super.updateTask(task);
+            savePut(task.getId());
+        });
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        super.updateEpic(epic);
-        save();
+        locked(() -> {
+            super.updateEpic(epic);
+            savePut(epic.getId());
+        });
     }
 
     @Override
     public void updateSubtask(Subtask subtask) {
-        super.updateSubtask(subtask);
-        save();
+        locked(() -> {
+            super.updateSubtask(subtask);
+            savePut(subtask.getId());
+        });
     }
 
     @Override
     public void deleteTask(int id) {
-        super.deleteTask(id);
-        save();
+        locked(() -> {
+            IntSet removed = new IntSet();
+            if (tasks.containsKey(id)) {
+                removed.add(id);
+            }
+            super.deleteTask(id);
+            saveDelete(removed);
+        });
     }
 
     @Override
     public void deleteEpic(int id) {
-        super.deleteEpic(id);
-        save();
+        locked(() -> {
+            IntSet removed = new IntSet();
+            collectRemoved(id, removed);
+            super.deleteEpic(id);
+            saveDelete(removed);
+        });
     }
 
 
     @Override
     public void deleteSubtask(int id) {
-        super.deleteSubtask(id);
-        save();
+        locked(() -> {
+            IntSet removed = new IntSet();
+            if (subtasks.containsKey(id)) {
+                removed.add(id);
+            }
+            super.deleteSubtask(id);
+            saveDelete(removed);
+        });
     }
 
     @Override
     public void deleteTasks() {
-        super.deleteTasks();
-        save();
+        locked(() -> {
+            super.deleteTasks();
+            saveClear(TaskType.TASK);
+        });
     }
 
     @Override
     public void deleteSubtasks() {
-        super.deleteSubtasks();
-        save();
+        locked(() -> {
+            super.deleteSubtasks();
+            saveClear(TaskType.SUBTASK);
+        });
     }
 
     @Override
     public void deleteEpics() {
-        super.deleteEpics();
-        save();
+        locked(() -> {
+            super.deleteEpics();
+            saveClear(TaskType.SUBTASK, TaskType.EPIC);
+        });
+    }
+
+    @Override
+    public List<Integer> addNewTasks(List<? extends Task> tasks) {
+        return locked(() -> {
+            List<Integer> ids = super.addNewTasks(tasks);
+            savePut(ids);
+            return ids;
+        });
+    }
+
+    @Override
+    public List<Integer> addNewSubtasks(List<Subtask> subtasks) {
+        return locked(() -> {
+            List<Integer> ids = super.addNewSubtasks(subtasks);
+            savePut(ids);
+            return ids;
+        });
+    }
+
+    @Override
+    public void updateAll(List<? extends Task> tasks) {
+        locked(() -> {
+            super.updateAll(tasks);
+            savePut(tasks.stream().map(Task::getId).toList());
+        });
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        locked(() -> {
+            IntSet removed = new IntSet();
+            ids.forEach(id -> collectRemoved(id, removed));
+            super.deleteAll(ids);
+            saveDelete(removed);
+        });
+    }
+
+    /**
+     * Defers saving until the outermost batch completes, so the file is written once per batch.
+     * In journal mode the records of the batch are flushed together.
+     */
+    @Override
+    public void inBatch(Runnable action) {
+        stateLock.lock();
+        batchDepth++;
+        boolean write = false;
+        try {
+            action.run();
+        } finally {
+            batchDepth--;
+            try {
+                if (batchDepth == 0 && dirty) {
+                    applyDurability();
+                }
+            } finally {
+                write = takePendingWrite();
+                stateLock.unlock();
+            }
+        }
+        if (write) {
+            writeBack();
+        }
+    }
+
+    /**
+     * Writes pending changes now, whatever the durability. Must not be called inside {@link #inBatch}.
+     */
+    @Override
+    public void flush() {
+        if (stateLock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("flush() нельзя вызывать внутри пакета");
+        }
+        stateLock.lock();
+        try {
+            rethrowWriteFailure();
+        } finally {
+            stateLock.unlock();
+        }
+        writeBack();
+    }
+
+    public SaveStats saveStats() {
+        stateLock.lock();
+        try {
+            return new SaveStats(changes, writes);
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * Writes pending changes, flushes the journal and waits for a running compaction.
+     * The manager can still be used afterwards; the journal is reopened on the next change.
+     */
+    @Override
+    public void close() {
+        flush();
+        ioLock.lock();
+        try {
+            closeJournal();
+        } finally {
+            ioLock.unlock();
+        }
+        stateLock.lock();
+        try {
+            try {
+                history.close();
+            } catch (IOException e) {
+                throw new ManagerSaveException("Не удалось закрыть историю: " + historyPathOf(file), e);
+            }
+        } finally {
+            if (compactor != null) {
+                compactor.shutdown();
+                compactor = null;
+            }
+            if (writer != null) {
+                writer.shutdownNow();
+                writer = null;
+                writeBackScheduled = false;
+            }
+            closeRowIndex();
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * Waits for a running compaction and closes the journal file, writing whatever was added since the flush.
+     * Runs under the io lock; the state lock is only taken to detach the journal.
+     */
+    private void closeJournal() {
+        Journal closing;
+        CharSequence records;
+        stateLock.lock();
+        try {
+            closing = journal;
+            journal = null;
+            records = closing == null ? "" : closing.take();
+        } finally {
+            stateLock.unlock();
+        }
+        try {
+            awaitCompaction();
+        } finally {
+            if (closing != null) {
+                try {
+                    closing.write(records);
+                    closing.close();
+                } catch (IOException e) {
+                    stateLock.lock();
+                    try {
+                        // keep the records for the next write, ahead of any added meanwhile
+                        if (journal != null) {
+                            closing.takeOver(journal);
+                        }
+                        journal = closing;
+                        dirty = true;
+                    } finally {
+                        stateLock.unlock();
+                    }
+                    throw new ManagerSaveException("Не удалось закрыть журнал: " + journalPath, e);
+                }
+            }
+        }
     }
 
     public static FileBackedTaskManager loadFromFile(File src) {
+        return loadFromFile(src, Options.DEFAULT);
+    }
+
+    /**
+     * Reads the snapshot and replays the journal left next to it, whichever mode wrote them.
+     * The snapshot format is detected, and a binary snapshot stays binary when saved again, whatever
+     * {@code options} say.
+     * The history is restored from the view log next to the snapshot.
+     */
+    public static FileBackedTaskManager loadFromFile(File src, Options options) {
         Path path = src.toPath();
-        FileBackedTaskManager manager = new FileBackedTaskManager(path);
+        List<Task> rows;
+        int maxId = 0;
+        FileBackedTaskManager manager;
+        try {
+            boolean binary = BinarySnapshot.isBinary(path);
+            SegmentedSnapshot.Manifest manifest = binary ? null : SegmentedSnapshot.manifest(path);
+            manager = new FileBackedTaskManager(path, options.withSnapshotFormat(
+                    binary && options.saveMode() != SaveMode.SEGMENTED ? SnapshotFormat.BINARY : SnapshotFormat.CSV));
+            manager.loaded = true;
 
-        try (BufferedReader bufferedReader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
-            String header = bufferedReader.readLine();
-            if (header == null) return manager;
-            if (!HEADER.equals(header.trim())) {
-                throw new ManagerSaveException("Неверный заголовок CSV: " + header);
+            if (binary) {
+                try (InputStream in = Files.newInputStream(path)) {
+                    rows = BinarySnapshot.decode(in);
+                }
+            } else if (manifest != null) {
+                rows = SegmentedSnapshot.read(path, manifest);
+            } else {
+                rows = ParallelCsvReader.read(path);
+            }
+            for (Task parsed : rows) {
+                if (parsed.getId() > maxId) maxId = parsed.getId();
             }
 
-            int maxId = 0;
-            List<Subtask> buffer = new ArrayList<>();
+            // segments on disk are only reused as they are when no journal has to be replayed over them
+            if (options.saveMode() == SaveMode.SEGMENTED && manifest != null
+                    && manifest.segmentSize() == SegmentedSnapshot.SEGMENT_SIZE && !manager.journalOnDisk) {
+                manager.segments = manifest;
+                rows.forEach(parsed -> manager.segmentsOnDisk.add(SegmentedSnapshot.segmentNumber(parsed.getId())));
+            }
 
-            String line = bufferedReader.readLine();
-            while (line != null) {
-                if (!line.isBlank()) {
-                    Task parsed = manager.fromString(line);
+            if (manager.journalOnDisk) {
+                Map<Integer, Task> byId = new LinkedHashMap<>();
+                rows.forEach(parsed -> byId.put(parsed.getId(), parsed));
+                maxId = Math.max(maxId, Journal.replay(manager.compactingJournalPath, byId));
+                maxId = Math.max(maxId, Journal.replay(manager.journalPath, byId));
+                rows = new ArrayList<>(byId.values());
+            }
+            manager.history.restore();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось прочитать файл: " + path, e);
+        }
+
+        manager.restore(rows);
+        manager.generatorId = Math.max(manager.generatorId, maxId);
+        return manager;
+    }
 
+    public static FileBackedTaskManager openLazy(File src) {
+        return openLazy(src, DEFAULT_LAZY_CACHE_SIZE);
+    }
+
+    /**
+     * Opens a CSV snapshot without reading the tasks and subtasks into memory.
+     * <p>
+     * Startup streams the file once and keeps only each row's byte range, the epics with their subtask ids and
+     * totals, and the time index. A task or subtask is read with one positioned read on first access and then kept
+     * in an LRU cache of {@code cacheSize} entries per map; added and updated ones stay in memory. Changes are
+     * journaled and never compacted, because rewriting the snapshot would move the indexed rows.
+     * {@link #loadFromFile(File)} reads the snapshot and journal back as usual.
+     */
+    public static FileBackedTaskManager openLazy(File src, int cacheSize) {
+        Path path = src.toPath();
+        CsvRowIndex rows = new CsvRowIndex(path);
+        LazyTaskMap<Task> lazyTasks = new LazyTaskMap<>(rows, Task.class, cacheSize);
+        LazyTaskMap<Subtask> lazySubtasks = new LazyTaskMap<>(rows, Subtask.class, cacheSize);
+        FileBackedTaskManager manager = new FileBackedTaskManager(path,
+                Options.DEFAULT.withSaveMode(SaveMode.JOURNAL).withCompactionThreshold(Long.MAX_VALUE),
+                lazyTasks, lazySubtasks, new LoggedHistoryManager(historyPathOf(path)));
+        manager.loaded = true;
+        manager.rowIndex = rows;
+
+        Map<Integer, Task> journaled = new LinkedHashMap<>();
+        IntSet deleted = new IntSet();
+        EnumSet<TaskType> cleared = EnumSet.noneOf(TaskType.class);
+        Journal.Target replay = new Journal.Target() {
+            @Override
+            public void put(Task task) {
+                journaled.put(task.getId(), task);
+            }
+
+            @Override
+            public void delete(int id) {
+                journaled.remove(id);
+                deleted.add(id);
+            }
+
+            @Override
+            public void clear(TaskType type) {
+                journaled.values().removeIf(task -> task.getType() == type);
+                cleared.add(type);
+            }
+        };
+
+        int maxId = 0;
+        List<TimeIndex.Slot> taskSlots = new ArrayList<>();
+        List<TimeIndex.Slot> subtaskSlots = new ArrayList<>();
+        List<Subtask> orphans = new ArrayList<>();
+        try {
+            if (BinarySnapshot.isBinary(path) || SegmentedSnapshot.manifest(path) != null) {
+                throw new ManagerSaveException("Ленивое открытие поддерживает только CSV: " + path);
+            }
+            if (manager.journalOnDisk) {
+                maxId = Math.max(maxId, Journal.replay(manager.compactingJournalPath, replay));
+                maxId = Math.max(maxId, Journal.replay(manager.journalPath, replay));
+            }
+            manager.history.restore();
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                CsvCodec.RowReader row = new CsvCodec.RowReader(reader);
+                if (row.next() && !CsvCodec.HEADER.equals(row.toString().trim())) {
+                    throw new ManagerSaveException("Неверный заголовок CSV: " + row);
+                }
+                while (row.next()) {
+                    Task parsed = CsvCodec.read(row, 0);
+                    int id = parsed.getId();
+                    maxId = Math.max(maxId, id);
+                    if (cleared.contains(parsed.getType()) || deleted.contains(id) || journaled.containsKey(id)) {
+                        continue;
+                    }
                     if (parsed instanceof Epic epic) {
-                        manager.epics.put(epic.getId(), epic);
-                        if (epic.getId() > maxId) maxId = epic.getId();
-                    } else if (parsed instanceof Subtask subtask) {
-                        buffer.add(subtask);
-                        if (subtask.getId() > maxId) maxId = subtask.getId();
+                        manager.epics.put(id, epic);
+                        continue;
+                    }
+                    rows.put(id, row.recordOffset(), row.recordLength());
+                    manager.indexStatus(parsed);
+                    if (parsed instanceof Subtask subtask) {
+                        lazySubtasks.index(id);
+                        manager.linkLoadedSubtask(subtask, orphans);
                     } else {
-                        manager.tasks.put(parsed.getId(), parsed);
-                        if (parsed.getId() > maxId) maxId = parsed.getId();
+                        lazyTasks.index(id);
+                    }
+                    if (parsed.getStartTime() != null) {
+                        (parsed instanceof Subtask ? subtaskSlots : taskSlots).add(TimeIndex.Slot.of(parsed));
                     }
                 }
-                line = bufferedReader.readLine();
             }
+        } catch (IOException e) {
+            manager.closeRowIndex();
+            throw new ManagerSaveException("Не удалось прочитать файл: " + path, e);
+        } catch (RuntimeException e) {
+            manager.closeRowIndex();
+            throw e;
+        }
 
-            buffer.forEach(subtask -> {
-                Epic epic = manager.epics.get(subtask.getEpicId());
-                if (epic == null) {
-                    throw new ManagerSaveException("Нет эпика " + subtask.getEpicId() + " для сабтаска " + subtask.getId());
-                }
+        for (Task task : journaled.values()) {
+            if (task instanceof Epic epic) {
+                manager.epics.put(epic.getId(), epic);
+            }
+        }
+        for (Task task : journaled.values()) {
+            if (task instanceof Subtask subtask) {
                 manager.subtasks.put(subtask.getId(), subtask);
-                epic.addSubtaskId(subtask.getId());
-            });
+                orphans.add(subtask);
+            } else if (!(task instanceof Epic)) {
+                manager.tasks.put(task.getId(), task);
+            }
+            if (!(task instanceof Epic)) {
+                manager.indexStatus(task);
+            }
+            if (!(task instanceof Epic) && task.getStartTime() != null) {
+                (task instanceof Subtask ? subtaskSlots : taskSlots).add(TimeIndex.Slot.of(task));
+            }
+        }
+        for (Subtask subtask : orphans) {
+            Epic epic = manager.epics.get(subtask.getEpicId());
+            if (epic == null) {
+                manager.closeRowIndex();
+                throw new ManagerSaveException("Нет эпика " + subtask.getEpicId() + " для сабтаска " + subtask.getId());
+            }
+            manager.linkSubtask(epic, subtask);
+        }
 
+        manager.epics.values().forEach(epic -> {
+            manager.updateEpicStatus(epic.getId());
+            manager.updateEpicTime(epic.getId());
+        });
+        manager.rebuildPrioritized(taskSlots, subtaskSlots);
+        manager.generatorId = maxId;
+        return manager;
+    }
 
-            manager.epics.values().forEach(epic -> {
-                manager.updateEpicStatus(epic.getId());
-                manager.updateEpicTime(epic.getId());
-            });
+    /**
+     * Rewrites the state stored at {@code source}, journal included, as a snapshot in {@code format} at {@code target}.
+     */
+    public static void convert(File source, Path target, SnapshotFormat format) {
+        FileBackedTaskManager manager = loadFromFile(source);
+        try {
+            SnapshotFiles.capture(manager.snapshotTasks(), format).writeTo(target);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось сохранить в файл: " + target, e);
+        }
+    }
+
+    /**
+     * Rows read from disk by a manager opened with {@link #openLazy}; zero for any other manager.
+     */
+    long lazyReads() {
+        return rowIndex == null ? 0 : rowIndex.reads();
+    }
 
-            manager.tasks.values().forEach(manager::addToPrioritizedIfNeeded);
-            manager.subtasks.values().forEach(manager::addToPrioritizedIfNeeded);
+    private void linkLoadedSubtask(Subtask subtask, List<Subtask> orphans) {
+        Epic epic = epics.get(subtask.getEpicId());
+        if (epic == null) {
+            orphans.add(subtask);
+        } else {
+            linkSubtask(epic, subtask);
+        }
+    }
 
-            manager.generatorId = maxId;
+    private void closeRowIndex() {
+        if (rowIndex == null) {
+            return;
+        }
+        try {
+            rowIndex.close();
         } catch (IOException e) {
-            throw new ManagerSaveException("Не удалось прочитать файл: " + path, e);
+            throw new ManagerSaveException("Не удалось закрыть файл: " + file, e);
         }
+    }
 
-        return manager;
+    static Path journalPathOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".journal");
+    }
+
+    static Path historyPathOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".history");
+    }
+
+    static Path compactingJournalPathOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".journal.old");
     }
 
 
-    private void save() {
-        try (BufferedWriter bufferedWriter = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
-            bufferedWriter.write(HEADER);
-            bufferedWriter.newLine();
+    private void changed() {
+        changes++;
+        dirty = true;
+        if (batchDepth == 0) {
+            applyDurability();
+        }
+    }
 
+    private void applyDurability() {
+        rethrowWriteFailure();
+        switch (durability) {
+            // written once the state lock is released, since writeBack() takes the io lock first
+            case PER_OPERATION -> writePending = true;
+            case GROUP_COMMIT -> scheduleWriteBack();
+            case ON_CLOSE -> {
+            }
+        }
+    }
 
-            String tasksBlock = tasks.values().stream()
-                    .sorted(Comparator.comparingInt(Task::getId))
-                    .map(this::toString)
-                    .collect(Collectors.joining(System.lineSeparator(), "", System.lineSeparator()));
-            bufferedWriter.write(tasksBlock);
+    private void scheduleWriteBack() {
+        if (writeBackScheduled) {
+            return;
+        }
+        if (writer == null) {
+            writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "task-file-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        writeBackScheduled = true;
+        writer.schedule(this::backgroundWriteBack, groupCommitInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
 
+    private void backgroundWriteBack() {
+        stateLock.lock();
+        try {
+            writeBackScheduled = false;
+        } finally {
+            stateLock.unlock();
+        }
+        try {
+            writeBack();
+        } catch (RuntimeException e) {
+            stateLock.lock();
+            try {
+                writeFailure = e;
+            } finally {
+                stateLock.unlock();
+            }
+        }
+    }
 
-            String epicsBlock = epics.values().stream()
-                    .sorted(Comparator.comparingInt(Task::getId))
-                    .map(this::toString)
-                    .collect(Collectors.joining(System.lineSeparator(), "", System.lineSeparator()));
-            bufferedWriter.write(epicsBlock);
+    private void rethrowWriteFailure() {
+        if (writeFailure != null) {
+            RuntimeException failure = writeFailure;
+            writeFailure = null;
+            throw new ManagerSaveException("Фоновая запись не удалась: " + file, failure);
+        }
+    }
 
+    /**
+     * Captures the rows under the state lock and writes them outside of it, so callers are not blocked
+     * by the disk. The io lock keeps writes in the order their rows were captured; it is always taken before
+     * the state lock, so this must not be called while holding the state lock.
+     */
+    private void writeBack() {
+        ioLock.lock();
+        try {
+            SnapshotFiles.SnapshotWrite snapshot = null;
+            JournalWrite journalWrite = null;
+            stateLock.lock();
+            try {
+                if (!dirty) {
+                    return;
+                }
+                dirty = false;
+                if (saveMode == SaveMode.JOURNAL) {
+                    journalWrite = takeJournalWrite();
+                } else {
+                    snapshot = saveMode == SaveMode.SEGMENTED
+                            ? segmentsSnapshot()
+                            : SnapshotFiles.capture(snapshotTasks(), snapshotFormat);
+                }
+            } finally {
+                stateLock.unlock();
+            }
+            if (journalWrite != null) {
+                writeJournal(journalWrite);
+                return;
+            }
+            try {
+                snapshot.writeTo(file);
+                if (journalOnDisk) {
+                    // the snapshot now holds everything, a leftover journal would replay stale records over it
+                    Files.deleteIfExists(compactingJournalPath);
+                    Files.deleteIfExists(journalPath);
+                    journalOnDisk = false;
+                }
+                if (saveMode == SaveMode.SNAPSHOT && segmentDirectoryOnDisk) {
+                    SegmentedSnapshot.deleteOtherGenerations(file, -1);
+                    segmentDirectoryOnDisk = false;
+                }
+                stateLock.lock();
+                try {
+                    writes++;
+                    if (snapshot instanceof SegmentsWrite write) {
+                        segments = write.manifest;
+                    }
+                } finally {
+                    stateLock.unlock();
+                }
+            } catch (IOException e) {
+                stateLock.lock();
+                try {
+                    dirty = true;
+                    // the segments on disk may now disagree with each other, so the next save writes them all
+                    segments = null;
+                } finally {
+                    stateLock.unlock();
+                }
+                throw new ManagerSaveException("Не удалось сохранить в файл: " + file, e);
+            }
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    private <T> T locked(Supplier<T> action) {
+        stateLock.lock();
+        T result;
+        boolean write = false;
+        try {
+            result = action.get();
+        } finally {
+            write = takePendingWrite();
+            stateLock.unlock();
+        }
+        if (write) {
+            writeBack();
+        }
+        return result;
+    }
+
+    private void locked(Runnable action) {
+        locked(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Returns whether a per-operation write is due once the outermost hold of the state lock is released.
+     */
+    private boolean takePendingWrite() {
+        if (!writePending || stateLock.getHoldCount() > 1) {
+            return false;
+        }
+        writePending = false;
+        return true;
+    }
+
+    private void savePut(int id) {
+        if (saveMode != SaveMode.JOURNAL) {
+            touch(id);
+            changed();
+            return;
+        }
+        Task stored = stored(id);
+        try {
+            if (stored != null) {
+                journal().put(stored);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать журнал: " + journalPath, e);
+        }
+        changed();
+    }
+
+    private void savePut(Collection<Integer> ids) {
+        if (saveMode != SaveMode.JOURNAL) {
+            for (Integer id : ids) {
+                if (id != null) {
+                    touch(id);
+                }
+            }
+            changed();
+            return;
+        }
+        try {
+            Journal target = journal();
+            for (Integer id : ids) {
+                Task stored = id == null ? null : stored(id);
+                if (stored != null) {
+                    target.put(stored);
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать журнал: " + journalPath, e);
+        }
+        changed();
+    }
 
-            String subtasksBlock = subtasks.values().stream()
-                    .sorted(Comparator.comparingInt(Task::getId))
-                    .map(this::toString)
-                    .collect(Collectors.joining(System.lineSeparator(), "", System.lineSeparator()));
-            bufferedWriter.write(subtasksBlock);
+    private void saveDelete(IntSet ids) {
+        if (saveMode != SaveMode.JOURNAL) {
+            ids.forEach(this::touch);
+            changed();
+            return;
+        }
+        try {
+            Journal target = journal();
+            for (int id : ids.toArray()) {
+                target.delete(id);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать журнал: " + journalPath, e);
+        }
+        changed();
+    }
 
+    private void saveClear(TaskType... types) {
+        if (saveMode != SaveMode.JOURNAL) {
+            // the cleared ids are gone by now, so every segment that may have held them is rewritten
+            segmentsOnDisk.forEach(dirtySegments::add);
+            changed();
+            return;
+        }
+        try {
+            Journal target = journal();
+            for (TaskType type : types) {
+                target.clear(type);
+            }
         } catch (IOException e) {
-            throw new ManagerSaveException("Не удалось сохранить в файл: " + file, e);
+            throw new ManagerSaveException("Не удалось записать журнал: " + journalPath, e);
         }
+        changed();
     }
 
+    private void touch(int id) {
+        if (saveMode == SaveMode.SEGMENTED) {
+            dirtySegments.add(SegmentedSnapshot.segmentNumber(id));
+        }
+    }
 
+    /**
+     * Captures the touched segments, or all of them when the segments on disk cannot be trusted to hold the rest.
+     * Rows are encoded right away, like {@link SnapshotFiles#capture}.
+     */
+    private SnapshotFiles.SnapshotWrite segmentsSnapshot() {
+        boolean full = segments == null;
+        IntSet touched = dirtySegments;
+        if (full) {
+            touched = new IntSet();
+            tasks.forEachKey(touched::add);
+            epics.forEachKey(touched::add);
+            subtasks.forEachKey(touched::add);
+            touched = segmentNumbers(touched);
+            segmentsOnDisk.clear();
+        }
+        int[] numbers = touched.toArray();
+        dirtySegments.clear();
+        StringBuilder[] contents = new StringBuilder[numbers.length];
+        for (int i = 0; i < numbers.length; i++) {
+            contents[i] = segmentRows(numbers[i]);
+            if (contents[i] == null) {
+                segmentsOnDisk.remove(numbers[i]);
+            } else {
+                segmentsOnDisk.add(numbers[i]);
+            }
+        }
+        return new SegmentsWrite(full ? null : segments, numbers, contents);
+    }
 
-    private String toString(Task task) {
-        String epicCol = "";
-        String durationCol = (task.getDuration() == null)
-                ? ""
-                : String.valueOf(task.getDuration().toMinutes());
-        String startCol = (task.getStartTime() == null)
-                ? ""
-                : task.getStartTime().toString();
+    private static IntSet segmentNumbers(IntSet ids) {
+        IntSet numbers = new IntSet();
+        ids.forEach(id -> numbers.add(SegmentedSnapshot.segmentNumber(id)));
+        return numbers;
+    }
 
-        return task.getId() + "," +
-                TaskType.TASK + "," +
-                task.getName() + "," +
-                task.getStatus() + "," +
-                task.getDescription() + "," +
-                epicCol + "," +
-                durationCol + "," +
-                startCol;
+    private StringBuilder segmentRows(int segment) {
+        StringBuilder csv = null;
+        int from = segment * SegmentedSnapshot.SEGMENT_SIZE;
+        for (int i = 0; i < SegmentedSnapshot.SEGMENT_SIZE; i++) {
+            Task task = stored(from + i);
+            if (task == null) {
+                continue;
+            }
+            if (csv == null) {
+                csv = new StringBuilder(64 * 32);
+                csv.append(CsvCodec.HEADER).append('\n');
+            }
+            CsvCodec.write(csv, task);
+            csv.append('\n');
+        }
+        return csv;
     }
 
+    /**
+     * Writes captured segments into the current generation, or a full set into a new generation
+     * followed by the manifest that switches to it.
+     */
+    private static final class SegmentsWrite implements SnapshotFiles.SnapshotWrite {
+        private final int[] numbers;
+        private final StringBuilder[] contents;
+        private SegmentedSnapshot.Manifest manifest;
 
-    private String toString(Epic epic) {
+        SegmentsWrite(SegmentedSnapshot.Manifest manifest, int[] numbers, StringBuilder[] contents) {
+            this.manifest = manifest;
+            this.numbers = numbers;
+            this.contents = contents;
+        }
 
-        return epic.getId() + "," +
-                TaskType.EPIC + "," +
-                epic.getName() + "," +
-                epic.getStatus() + "," +
-                epic.getDescription() + "," + "," + ",";
+        @Override
+        public void writeTo(Path target) throws IOException {
+            if (manifest != null) {
+                writeSegments(SegmentedSnapshot.generationOf(target, manifest.generation()));
+                return;
+            }
+            SegmentedSnapshot.Manifest previous = SegmentedSnapshot.manifest(target);
+            SegmentedSnapshot.Manifest next = new SegmentedSnapshot.Manifest(SegmentedSnapshot.SEGMENT_SIZE,
+                    previous == null ? 0 : previous.generation() + 1);
+            Path generation = SegmentedSnapshot.generationOf(target, next.generation());
+            SegmentedSnapshot.deleteTree(generation);
+            Files.createDirectories(generation);
+            writeSegments(generation);
+            byte[] line = SegmentedSnapshot.manifestLine(next).getBytes(StandardCharsets.UTF_8);
+            SnapshotFiles.replace(target, out -> out.write(line));
+            SegmentedSnapshot.deleteOtherGenerations(target, next.generation());
+            manifest = next;
+        }
+
+        private void writeSegments(Path generation) throws IOException {
+            for (int i = 0; i < numbers.length; i++) {
+                Path segment = SegmentedSnapshot.segmentOf(generation, numbers[i]);
+                StringBuilder csv = contents[i];
+                if (csv == null) {
+                    Files.deleteIfExists(segment);
+                } else {
+                    SnapshotFiles.writeCsv(segment, csv);
+                }
+            }
+        }
     }
 
-    private String toString(Subtask subtask) {
-        String durationCol = (subtask.getDuration() == null)
-                ? ""
-                : String.valueOf(subtask.getDuration().toMinutes());
-        String startCol = (subtask.getStartTime() == null)
-                ? ""
-                : subtask.getStartTime().toString();
-        return subtask.getId() + "," + TaskType.SUBTASK + "," + subtask.getName() + "," +
-                subtask.getStatus() + "," + subtask.getDescription() + "," + subtask.getEpicId() + "," +
-                durationCol + "," +
-                startCol;
+    /**
+     * Collects the ids a delete of {@code id} removes: the id itself and, for an epic, its subtasks.
+     */
+    private void collectRemoved(int id, IntSet removed) {
+        if (tasks.containsKey(id) || subtasks.containsKey(id)) {
+            removed.add(id);
+        } else {
+            Epic epic = epics.get(id);
+            if (epic != null) {
+                epic.forEachSubtaskId(removed::add);
+                removed.add(id);
+            }
+        }
     }
 
-    private Task fromString(String line) throws ManagerSaveException {
-        String[] fields = line.split(",", -1);
-        if (fields.length != 8) {
-            throw new ManagerSaveException("CSV: ожидалось 8 колонок, получено " + fields.length + ": " + line);
+    private Task stored(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = epics.get(id);
         }
+        return task == null ? subtasks.get(id) : task;
+    }
 
-        TaskType type = TaskType.valueOf(fields[1]);
+    private Journal journal() throws IOException {
+        if (journal == null) {
+            if (!loaded) {
+                // a fresh manager owns the file, the same way its first full save would overwrite it;
+                // everything it holds is about to be journaled, so the snapshot starts empty
+                SnapshotFiles.capture(List.of(), snapshotFormat).writeTo(file);
+                Files.deleteIfExists(compactingJournalPath);
+                Files.deleteIfExists(journalPath);
+                loaded = true;
+            }
+            journal = new Journal(journalPath);
+        }
+        return journal;
+    }
 
-        int id = Integer.parseInt(fields[0]);
-        String name = fields[2];
-        TaskStatus status = TaskStatus.valueOf(fields[3]);
-        String description = fields[4];
-        String epicStr = fields[5];
-        String durStr = fields[6];
-        String startStr = fields[7];
+    /**
+     * Journal records taken under the state lock, with the snapshot to compact them into when the journal
+     * has grown past the threshold.
+     */
+    private record JournalWrite(Journal journal, CharSequence records, SnapshotFiles.SnapshotWrite snapshot) {
+    }
 
-        Duration duration = durStr.isEmpty() ? null : Duration.ofMinutes(Long.parseLong(durStr));
-        LocalDateTime startTime = startStr.isEmpty() ? null : LocalDateTime.parse(startStr);
+    /**
+     * Takes the records to write; called under both locks. When the journal is due for compaction the rows are
+     * captured now and later records go to a new journal, so the snapshot holds exactly the taken records.
+     */
+    private JournalWrite takeJournalWrite() {
+        Journal target;
+        try {
+            target = journal();
+        } catch (IOException e) {
+            dirty = true;
+            throw new ManagerSaveException("Не удалось записать журнал: " + journalPath, e);
+        }
+        CharSequence records = target.take();
+        SnapshotFiles.SnapshotWrite snapshot = null;
+        if (target.size() >= compactionThreshold && (compaction == null || compaction.isDone())) {
+            snapshot = SnapshotFiles.capture(snapshotTasks(), snapshotFormat);
+            journal = new Journal(journalPath, 0);
+        }
+        return new JournalWrite(target, records, snapshot);
+    }
 
-        switch (type) {
-            case TASK -> {
-                Task task = new Task(name, description, status, duration, startTime);
-                task.setId(id);
-                return task;
+    /**
+     * Appends and forces the taken records, then rotates the journal if the write carries a snapshot.
+     * Runs under the io lock only, so changes go on while the disk catches up.
+     */
+    private void writeJournal(JournalWrite write) {
+        try {
+            write.journal().write(write.records());
+            if (write.snapshot() != null) {
+                compact(write.journal(), write.snapshot());
             }
-            case EPIC -> {
-                Epic e = new Epic(name, description);
-                e.setStatus(status);
-                e.setId(id);
-                return e;
+        } catch (IOException e) {
+            journalWriteFailed(write);
+            throw new ManagerSaveException("Не удалось записать журнал: " + journalPath, e);
+        } catch (ManagerSaveException e) {
+            journalWriteFailed(write);
+            throw e;
+        }
+        stateLock.lock();
+        try {
+            writes++;
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    private void journalWriteFailed(JournalWrite write) {
+        stateLock.lock();
+        try {
+            dirty = true;
+            if (write.snapshot() != null && journal != write.journal()) {
+                // the file was not rotated, so records taken since go after the ones it already holds
+                if (journal != null) {
+                    write.journal().takeOver(journal);
+                }
+                journal = write.journal();
             }
-            case SUBTASK -> {
-                if (epicStr.isEmpty())
-                    throw new ManagerSaveException("CSV: у сабтаска пустой epicId: " + line);
-                int epicId = Integer.parseInt(epicStr);
-                Subtask subtask = new Subtask(name, description, status, epicId, duration, startTime);
-                subtask.setId(id);
-                return subtask;
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * Moves the written journal aside and writes the captured snapshot in the background.
+     * The rows were captured with the records, so the background write never touches the live maps.
+     * Until the snapshot is in place the rotated journal stays on disk and is replayed on load.
+     */
+    private void compact(Journal written, SnapshotFiles.SnapshotWrite snapshot) throws IOException {
+        awaitCompaction();
+        written.close();
+        if (Files.exists(compactingJournalPath)) {
+            // the previous compaction failed; keep its records ahead of the newer ones
+            try (OutputStream out = Files.newOutputStream(compactingJournalPath, StandardOpenOption.APPEND)) {
+                Files.copy(journalPath, out);
             }
-            default -> throw new ManagerSaveException("Unknown type: " + type);
+            Files.delete(journalPath);
+        } else {
+            Files.move(journalPath, compactingJournalPath, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "task-journal-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
         }
+        compaction = compactor.submit(() -> {
+            snapshot.writeTo(file);
+            Files.delete(compactingJournalPath);
+            return null;
+        });
     }
 
+    private void awaitCompaction() {
+        if (compaction == null) {
+            return;
+        }
+        try {
+            compaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Сжатие журнала прервано: " + file, e);
+        } catch (ExecutionException e) {
+            throw new ManagerSaveException("Не удалось сжать журнал: " + file, e.getCause());
+        } finally {
+            compaction = null;
+        }
+    }
+
+    private List<Task> snapshotTasks() {
+        List<Task> rows = new ArrayList<>(tasks.size() + epics.size() + subtasks.size());
+        tasks.values().stream()
+                .sorted(Comparator.comparingInt(Task::getId))
+                .forEach(rows::add);
+        epics.values().stream()
+                .sorted(Comparator.comparingInt(Task::getId))
+                .forEach(rows::add);
+        subtasks.values().stream()
+                .sorted(Comparator.comparingInt(Task::getId))
+                .forEach(rows::add);
+        return rows;
+    }
 }
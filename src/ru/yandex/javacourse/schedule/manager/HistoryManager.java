@@ -3,6 +3,8 @@ package ru.yandex.javacourse.schedule.manager;
 import java.util.List;
 
 import ru.yandex.javacourse.schedule.tasks.Task;
+import ru.yandex.javacourse.schedule.tasks.TaskType;
+import ru.yandex.javacourse.schedule.util.IntIterable;
 
 /**
  * History manager.
@@ -14,5 +16,23 @@ public interface HistoryManager {
 
     void remove(int id);
 
+    /**
+     * Removes the given ids, in time proportional to their number; ids not in the history are ignored.
+     */
+    default void removeAll(IntIterable ids) {
+        ids.forEach(this::remove);
+    }
+
+    /**
+     * Removes every entry of the given type, in time proportional to the history size.
+     */
+    default void removeAll(TaskType type) {
+        for (Task task : getHistory()) {
+            if (task.getType() == type) {
+                remove(task.getId());
+            }
+        }
+    }
+
     List<Task> getHistory();
 }
@@ -1,27 +1,56 @@
 package ru.yandex.javacourse.schedule.manager;
 
 import java.util.*;
+import java.util.function.IntFunction;
 
 import ru.yandex.javacourse.schedule.tasks.Task;
+import ru.yandex.javacourse.schedule.tasks.TaskType;
 
 /**
  * In memory history manager.
+ * <p>
+ * Keeps at most {@code capacity} entries and evicts the least recently viewed one first.
+ * With a resolver only ids are kept and {@link #getHistory()} looks the tasks up, so the history
+ * never holds on to a task that was replaced or deleted; ids the resolver no longer knows are skipped.
  *
  * @author Vladimir Ivanov (ivanov.vladimir.l@gmail.com)
  */
 public class InMemoryHistoryManager implements HistoryManager {
+    public static final int DEFAULT_CAPACITY = 10_000;
+
     private final Map<Integer, Node<Task>> history = new HashMap<>();
+    private final int capacity;
+    private final IntFunction<? extends Task> resolver;
 
     private Node<Task> head;
     private Node<Task> tail;
     private int size = 0;
 
+    public InMemoryHistoryManager() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public InMemoryHistoryManager(int capacity) {
+        this(capacity, null);
+    }
+
+    public InMemoryHistoryManager(int capacity, IntFunction<? extends Task> resolver) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным: " + capacity);
+        }
+        this.capacity = capacity;
+        this.resolver = resolver;
+    }
+
     @Override
     public List<Task> getHistory() {
         List<Task> result = new ArrayList<>(size);
         Node<Task> currentHead = head;
         while (currentHead != null) {
-            result.add(currentHead.getData());
+            Task task = resolver == null ? currentHead.getData() : resolver.apply(currentHead.getKey());
+            if (task != null) {
+                result.add(task);
+            }
             currentHead = currentHead.getNext();
         }
         return result;
@@ -37,11 +66,13 @@ public class InMemoryHistoryManager implements HistoryManager {
             removeNode(existing);
         }
         addNewNode(task);
-
+        if (size > capacity) {
+            removeNode(head);
+        }
     }
 
     private void addNewNode(Task task) {
-        Node<Task> newNode = new Node<>(tail, task, null);
+        Node<Task> newNode = new Node<>(tail, task.getId(), resolver == null ? task : null, null);
         if (tail != null) {
             tail.setNext(newNode);
         } else {
@@ -68,13 +99,23 @@ public class InMemoryHistoryManager implements HistoryManager {
         } else {
             tail = prev;
         }
-        Task taskToRemove = node.getData();
-        if (taskToRemove != null) {
-            history.remove(taskToRemove.getId());
-        }
+        history.remove(node.getKey());
         size--;
     }
 
+    @Override
+    public void removeAll(TaskType type) {
+        Node<Task> node = head;
+        while (node != null) {
+            Node<Task> next = node.getNext();
+            Task task = resolver == null ? node.getData() : resolver.apply(node.getKey());
+            if (task != null && task.getType() == type) {
+                removeNode(node);
+            }
+            node = next;
+        }
+    }
+
     @Override
     public void remove(int id) {
         Node<Task> node = history.get(id);
@@ -1,28 +1,106 @@
 package ru.yandex.javacourse.schedule.manager;
 
-import static ru.yandex.javacourse.schedule.tasks.TaskStatus.IN_PROGRESS;
-import static ru.yandex.javacourse.schedule.tasks.TaskStatus.NEW;
-
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
 
 
 import ru.yandex.javacourse.schedule.tasks.Epic;
 import ru.yandex.javacourse.schedule.tasks.Subtask;
 import ru.yandex.javacourse.schedule.tasks.Task;
 import ru.yandex.javacourse.schedule.tasks.TaskStatus;
+import ru.yandex.javacourse.schedule.tasks.TaskType;
+import ru.yandex.javacourse.schedule.util.IntMap;
+import ru.yandex.javacourse.schedule.util.IntSet;
 
-public class InMemoryTaskManager implements TaskManager {
+public class InMemoryTaskManager implements TaskManager, AutoCloseable {
 
-    protected final Map<Integer, Task> tasks = new HashMap<>();
-    protected final Map<Integer, Epic> epics = new HashMap<>();
-    protected final Map<Integer, Subtask> subtasks = new HashMap<>();
+    // by start, then end; the minute keys decide unless two times fall within one minute
+    private static final Comparator<Task> BY_TIME = (a, b) -> {
+        int result = Long.compare(a.getStartMinute(), b.getStartMinute());
+        if (result == 0) {
+            result = a.getStartTime().compareTo(b.getStartTime());
+        }
+        if (result == 0) {
+            result = Long.compare(a.getEndMinute(), b.getEndMinute());
+        }
+        return result != 0 ? result : a.getEndTime().compareTo(b.getEndTime());
+    };
+
+    protected final IntMap<Task> tasks;
+    protected final IntMap<Epic> epics;
+    protected final IntMap<Subtask> subtasks;
     protected int generatorId = 0;
-    private final HistoryManager historyManager = Managers.getDefaultHistory();
-    private final TreeSet<Task> prioritizedTasks = new TreeSet<>(Comparator.comparing(Task::getStartTime)
-            .thenComparingInt(Task::getId));
+    private final HistoryManager historyManager;
+    private final TimeIndex prioritizedTasks = new TimeIndex();
+    private final StatusIndex statusIndex = new StatusIndex();
+    private final IntMap<EpicAggregate> epicAggregates;
+    private final TaskStore store;
+
+    public InMemoryTaskManager() {
+        this(StorageType.HASH_MAP);
+    }
+
+    public InMemoryTaskManager(StorageType storageType) {
+        this(storageType, Managers::getDefaultHistory, storageType.newMap(), storageType.newMap(),
+                new InMemoryTaskStore());
+    }
+
+    /**
+     * Writes every change through to {@code store} without reading what it already holds; see {@link #open}.
+     */
+    public InMemoryTaskManager(StorageType storageType, TaskStore store) {
+        this(storageType, Managers::getDefaultHistory, storageType.newMap(), storageType.newMap(), store);
+    }
+
+    /**
+     * Restores the state kept by {@code store} and writes every later change through to it.
+     */
+    public static InMemoryTaskManager open(StorageType storageType, TaskStore store) {
+        InMemoryTaskManager manager = new InMemoryTaskManager(storageType, store);
+        List<Task> rows = new ArrayList<>();
+        store.scan(rows::add);
+        manager.restore(rows);
+        return manager;
+    }
+
+    protected InMemoryTaskManager(StorageType storageType, HistoryManager historyManager) {
+        this(storageType, resolver -> historyManager, storageType.newMap(), storageType.newMap(),
+                new InMemoryTaskStore());
+    }
+
+    /**
+     * Uses the given maps for tasks and subtasks, e.g. ones that read their values from disk on demand.
+     * {@code history} receives a lookup of stored tasks by id, so a history can keep ids instead of tasks.
+     */
+    protected InMemoryTaskManager(StorageType storageType, Function<IntFunction<Task>, HistoryManager> history,
+                                  IntMap<Task> tasks, IntMap<Subtask> subtasks) {
+        this(storageType, history, tasks, subtasks, new InMemoryTaskStore());
+    }
+
+    private InMemoryTaskManager(StorageType storageType, Function<IntFunction<Task>, HistoryManager> history,
+                                IntMap<Task> tasks, IntMap<Subtask> subtasks, TaskStore store) {
+        this.tasks = tasks;
+        this.epics = storageType.newMap();
+        this.subtasks = subtasks;
+        this.epicAggregates = storageType.newMap();
+        // resolves through the maps alone, so the partly built manager does not escape
+        this.historyManager = history.apply(resolver(tasks, subtasks, epics));
+        this.store = store;
+    }
+
+    private static IntFunction<Task> resolver(IntMap<Task> tasks, IntMap<Subtask> subtasks, IntMap<Epic> epics) {
+        return id -> {
+            Task task = tasks.get(id);
+            if (task == null) {
+                task = subtasks.get(id);
+            }
+            return task != null ? task : epics.get(id);
+        };
+    }
 
 
     @Override
@@ -47,10 +125,13 @@ public class InMemoryTaskManager implements TaskManager {
         if (epic == null) {
             return tasks;
         }
-        return epic.getSubtaskIds().stream()
-                .map(subtasks::get)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toCollection(ArrayList::new));
+        epic.forEachSubtaskId(subtaskId -> {
+            Subtask subtask = subtasks.get(subtaskId);
+            if (subtask != null) {
+                tasks.add(subtask);
+            }
+        });
+        return tasks;
     }
 
     @Override
@@ -80,18 +161,22 @@ public class InMemoryTaskManager implements TaskManager {
     public int addNewTask(Task task) {
         ensureNoOverlap(task);
 
-        final int id = ++generatorId;
+        final int id = nextId();
         task.setId(id);
+        reschedule(null, task);
         tasks.put(id, task);
-        addToPrioritizedIfNeeded(task);
+        indexStatus(task);
+        store.put(task);
         return id;
     }
 
     @Override
     public int addNewEpic(Epic epic) {
-        final int id = ++generatorId;
+        final int id = nextId();
         epic.setId(id);
         epics.put(id, epic);
+        indexStatus(epic);
+        store.put(epic);
         return id;
 
     }
@@ -104,13 +189,13 @@ public class InMemoryTaskManager implements TaskManager {
         if (epic == null) {
             return null;
         }
-        final int id = ++generatorId;
+        final int id = nextId();
         subtask.setId(id);
-        subtasks.put(id, subtask);
-        epic.addSubtaskId(subtask.getId());
+        reschedule(null, subtask);
+        attachSubtask(epic, subtask);
         updateEpicStatus(epicId);
         updateEpicTime(epic.getId());
-        addToPrioritizedIfNeeded(subtask);
+        store.put(subtask);
         return id;
     }
 
@@ -122,9 +207,10 @@ public class InMemoryTaskManager implements TaskManager {
         if (savedTask == null) {
             return;
         }
-        removeFromPrioritizedIfPresent(savedTask);
+        reschedule(savedTask, task);
         tasks.put(id, task);
-        addToPrioritizedIfNeeded(task);
+        indexStatus(task);
+        store.put(task);
     }
 
     @Override
@@ -133,6 +219,7 @@ public class InMemoryTaskManager implements TaskManager {
         if (savedEpic == null) return;
         savedEpic.setName(epic.getName());
         savedEpic.setDescription(epic.getDescription());
+        store.put(savedEpic);
     }
 
     @Override
@@ -148,72 +235,218 @@ public class InMemoryTaskManager implements TaskManager {
         if (epic == null) {
             return;
         }
-        removeFromPrioritizedIfPresent(savedSubtask);
+        reschedule(savedSubtask, subtask);
         subtasks.put(id, subtask);
-        addToPrioritizedIfNeeded(subtask);
+        indexStatus(subtask);
+        aggregateOf(epicId).put(subtask);
         updateEpicStatus(epicId);
         updateEpicTime(epic.getId());
+        store.put(subtask);
     }
 
     @Override
     public void deleteTask(int id) {
+        removeTask(id);
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        removeEpic(id);
+    }
+
+
+    @Override
+    public void deleteSubtask(int id) {
+        Subtask subtask = removeSubtask(id);
+        if (subtask != null) {
+            updateEpicStatus(subtask.getEpicId());
+            updateEpicTime(subtask.getEpicId());
+        }
+    }
+
+    @Override
+    public List<Integer> addNewTasks(List<? extends Task> newTasks) {
+        ensureNoOverlap(newTasks, id -> false);
+        List<Integer> ids = new ArrayList<>(newTasks.size());
+        store.batch(() -> {
+            for (Task task : newTasks) {
+                final int id = nextId();
+                task.setId(id);
+                addToPrioritizedIfNeeded(task);
+                tasks.put(id, task);
+                indexStatus(task);
+                store.put(task);
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+
+    @Override
+    public List<Integer> addNewSubtasks(List<Subtask> newSubtasks) {
+        List<Subtask> accepted = newSubtasks.stream()
+                .filter(subtask -> epics.containsKey(subtask.getEpicId()))
+                .toList();
+        ensureNoOverlap(accepted, id -> false);
+
+        List<Integer> ids = new ArrayList<>(newSubtasks.size());
+        IntSet touchedEpics = new IntSet();
+        store.batch(() -> {
+            for (Subtask subtask : newSubtasks) {
+                Epic epic = epics.get(subtask.getEpicId());
+                if (epic == null) {
+                    ids.add(null);
+                    continue;
+                }
+                final int id = nextId();
+                subtask.setId(id);
+                addToPrioritizedIfNeeded(subtask);
+                attachSubtask(epic, subtask);
+                store.put(subtask);
+                touchedEpics.add(epic.getId());
+                ids.add(id);
+            }
+        });
+        touchedEpics.forEach(epicId -> {
+            updateEpicStatus(epicId);
+            updateEpicTime(epicId);
+        });
+        return ids;
+    }
+
+    @Override
+    public void updateAll(List<? extends Task> updates) {
+        List<Task> replaced = new ArrayList<>();
+        IntSet replacedIds = new IntSet();
+        for (Task task : updates) {
+            boolean exists = (task instanceof Subtask subtask)
+                    ? subtasks.containsKey(subtask.getId()) && epics.containsKey(subtask.getEpicId())
+                    : !(task instanceof Epic) && tasks.containsKey(task.getId());
+            if (exists) {
+                replaced.add(task);
+                replacedIds.add(task.getId());
+            }
+        }
+        ensureNoOverlap(replaced, replacedIds::contains);
+
+        IntSet touchedEpics = new IntSet();
+        store.batch(() -> {
+            for (Task task : updates) {
+                if (task instanceof Epic epic) {
+                    Epic savedEpic = epics.get(epic.getId());
+                    if (savedEpic != null) {
+                        savedEpic.setName(epic.getName());
+                        savedEpic.setDescription(epic.getDescription());
+                        store.put(savedEpic);
+                    }
+                } else if (replacedIds.contains(task.getId())) {
+                    removeFromPrioritizedIfPresent(task);
+                    addToPrioritizedIfNeeded(task);
+                    if (task instanceof Subtask subtask) {
+                        subtasks.put(subtask.getId(), subtask);
+                        aggregateOf(subtask.getEpicId()).put(subtask);
+                        touchedEpics.add(subtask.getEpicId());
+                    } else {
+                        tasks.put(task.getId(), task);
+                    }
+                    indexStatus(task);
+                    store.put(task);
+                }
+            }
+        });
+        touchedEpics.forEach(epicId -> {
+            updateEpicStatus(epicId);
+            updateEpicTime(epicId);
+        });
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        IntSet touchedEpics = new IntSet();
+        store.batch(() -> {
+            for (int id : ids) {
+                if (tasks.containsKey(id)) {
+                    removeTask(id);
+                } else if (epics.containsKey(id)) {
+                    removeEpic(id);
+                } else {
+                    Subtask subtask = removeSubtask(id);
+                    if (subtask != null) {
+                        touchedEpics.add(subtask.getEpicId());
+                    }
+                }
+            }
+        });
+        touchedEpics.forEach(epicId -> {
+            updateEpicStatus(epicId);
+            updateEpicTime(epicId);
+        });
+    }
+
+    private void removeTask(int id) {
         Task task = tasks.remove(id);
         if (task != null) {
             removeFromPrioritizedIfPresent(task);
+            unindexStatus(task);
+            store.remove(id);
         }
         historyManager.remove(id);
-
     }
 
-    @Override
-    public void deleteEpic(int id) {
+    private void removeEpic(int id) {
         final Epic epic = epics.get(id);
         if (epic == null) return;
 
-        epic.getSubtaskIds().stream()
-                .map(subtasks::remove)
-                .filter(Objects::nonNull)
-                .forEach(subtask -> {
+        store.batch(() -> {
+            epic.forEachSubtaskId(subtaskId -> {
+                Subtask subtask = subtasks.remove(subtaskId);
+                if (subtask != null) {
                     removeFromPrioritizedIfPresent(subtask);
-                    historyManager.remove(subtask.getId());
-                });
-
-        epics.remove(id);
-        historyManager.remove(id);
+                    unindexStatus(subtask);
+                    store.remove(subtaskId);
+                }
+            });
+            historyManager.removeAll(epic::forEachSubtaskId);
+
+            epics.remove(id);
+            unindexStatus(epic);
+            epicAggregates.remove(id);
+            historyManager.remove(id);
+            store.remove(id);
+        });
     }
 
-
-    @Override
-    public void deleteSubtask(int id) {
+    /**
+     * Unlinks a subtask from its epic without refreshing the epic's status and time.
+     */
+    private Subtask removeSubtask(int id) {
         Subtask subtask = subtasks.get(id);
         if (subtask == null) {
-            return;
+            return null;
         }
         Epic epic = epics.get(subtask.getEpicId());
         if (epic != null) {
             epic.removeSubtask(id);
-            updateEpicStatus(epic.getId());
-            updateEpicTime(epic.getId());
+            aggregateOf(epic.getId()).remove(id);
         }
 
-
         removeFromPrioritizedIfPresent(subtask);
+        unindexStatus(subtask);
 
         subtasks.remove(id);
         historyManager.remove(id);
+        store.remove(id);
+        return subtask;
     }
 
     @Override
     public void deleteTasks() {
 
-        prioritizedTasks.stream()
-                .filter(t -> !(t instanceof Subtask))
-                .toList()
-                .forEach(prioritizedTasks::remove);
-
+        clearPrioritized(TaskType.TASK);
+        clearStatusIndex(TaskType.TASK);
 
-        new ArrayList<>(tasks.keySet())
-                .forEach(historyManager::remove);
+        historyManager.removeAll(TaskType.TASK);
+        store.batch(() -> tasks.forEachKey(store::remove));
 
         tasks.clear();
     }
@@ -221,16 +454,15 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void deleteSubtasks() {
 
-        prioritizedTasks.stream()
-                .filter(task -> task instanceof Subtask)
-                .toList()
-                .forEach(prioritizedTasks::remove);
-        new ArrayList<>(subtasks.keySet())
-                .forEach(historyManager::remove);
+        clearPrioritized(TaskType.SUBTASK);
+        clearStatusIndex(TaskType.SUBTASK);
+        historyManager.removeAll(TaskType.SUBTASK);
+        store.batch(() -> subtasks.forEachKey(store::remove));
 
 
         epics.values().forEach(epic -> {
             epic.cleanSubtaskIds();
+            aggregateOf(epic.getId()).clear();
             updateEpicStatus(epic.getId());
             updateEpicTime(epic.getId());
         });
@@ -241,16 +473,19 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void deleteEpics() {
 
-        List<Task> toRemove = prioritizedTasks.stream()
-                .filter(t -> t instanceof Subtask)
-                .toList();
-        toRemove.forEach(prioritizedTasks::remove);
-
-        subtasks.keySet().forEach(historyManager::remove);
+        clearPrioritized(TaskType.SUBTASK);
+        clearStatusIndex(TaskType.SUBTASK);
+        clearStatusIndex(TaskType.EPIC);
 
-        epics.keySet().forEach(historyManager::remove);
+        historyManager.removeAll(TaskType.SUBTASK);
+        historyManager.removeAll(TaskType.EPIC);
+        store.batch(() -> {
+            subtasks.forEachKey(store::remove);
+            epics.forEachKey(store::remove);
+        });
 
         epics.clear();
+        epicAggregates.clear();
         subtasks.clear();
     }
 
@@ -260,28 +495,135 @@ public class InMemoryTaskManager implements TaskManager {
         return historyManager.getHistory();
     }
 
+    @Override
+    public List<Task> getTasksByStatus(TaskType type, TaskStatus status) {
+        IntSet ids = statusIndex.ids(type, status);
+        List<Task> result = new ArrayList<>(ids.size());
+        ids.forEach(id -> {
+            Task task = findStored(id);
+            if (task != null) {
+                result.add(task);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public int countByStatus(TaskType type, TaskStatus status) {
+        return statusIndex.ids(type, status).size();
+    }
+
     @Override
     public List<Task> getPrioritizedTasks() {
-        return new ArrayList<>(prioritizedTasks);
+        List<Task> result = new ArrayList<>(prioritizedTasks.size());
+        prioritizedTasks.forEachOrdered(id -> addScheduled(result, id));
+        return result;
     }
 
-    protected void updateEpicStatus(int epicId) {
-        Epic epic = epics.get(epicId);
-        if (epic == null) return;
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        List<Task> result = new ArrayList<>();
+        for (TimeIndex.Slot slot : prioritizedTasks.startingBetween(from, to)) {
+            addScheduled(result, slot.id());
+        }
+        return result;
+    }
 
-        List<Integer> ids = epic.getSubtaskIds();
-        if (ids.isEmpty()) {
-            epic.setStatus(NEW);
-            return;
+    @Override
+    public Iterator<Task> iteratePrioritizedTasks(LocalDateTime from, LocalDateTime to, int limit) {
+        Iterator<TimeIndex.Slot> slots = prioritizedTasks.startingBetween(from, to).iterator();
+        return new Iterator<>() {
+            private int remaining = limit;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0 && slots.hasNext();
+            }
+
+            @Override
+            public Task next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                remaining--;
+                return findScheduled(slots.next().id());
+            }
+        };
+    }
+
+    @Override
+    public Optional<LocalDateTime> findFreeSlot(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter) {
+        return findFreeSlots(duration, notBefore, notAfter, 1).stream().findFirst();
+    }
+
+    @Override
+    public List<LocalDateTime> findFreeSlots(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter,
+                                             int limit) {
+        if (duration == null || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Длительность слота должна быть положительной: " + duration);
         }
+        if (notBefore == null) {
+            throw new IllegalArgumentException("Не задано начало поиска слота");
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("Отрицательное количество слотов: " + limit);
+        }
+        return prioritizedTasks.findFreeSlots(duration, notBefore, notAfter, limit);
+    }
 
+    /**
+     * Writes changes the store still buffers.
+     */
+    public void flush() {
+        store.flush();
+    }
 
-        Optional<TaskStatus> reduced = ids.stream()
-                .map(subtasks::get)
-                .map(Subtask::getStatus)
-                .reduce((acc, st) -> (acc == st && acc != IN_PROGRESS) ? acc : IN_PROGRESS);
+    /**
+     * Flushes and releases the store; the manager itself stays usable in memory.
+     */
+    @Override
+    public void close() {
+        store.close();
+    }
 
-        epic.setStatus(reduced.orElse(NEW));
+    /**
+     * Fills empty maps with rows read back from storage, in any order, and moves the id generator past them.
+     * Nothing is written to the store.
+     */
+    protected void restore(Collection<? extends Task> rows) {
+        List<Subtask> buffer = new ArrayList<>();
+        int maxId = generatorId;
+        for (Task row : rows) {
+            maxId = Math.max(maxId, row.getId());
+            if (row instanceof Epic epic) {
+                epics.put(epic.getId(), epic);
+            } else if (row instanceof Subtask subtask) {
+                buffer.add(subtask);
+            } else {
+                tasks.put(row.getId(), row);
+                indexStatus(row);
+            }
+        }
+        for (Subtask subtask : buffer) {
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic == null) {
+                throw new ManagerSaveException("Нет эпика " + subtask.getEpicId() + " для сабтаска " + subtask.getId());
+            }
+            attachSubtask(epic, subtask);
+        }
+        epics.forEachKey(epicId -> {
+            updateEpicStatus(epicId);
+            updateEpicTime(epicId);
+        });
+        rebuildPrioritized();
+        generatorId = maxId;
+    }
+
+    protected void updateEpicStatus(int epicId) {
+        Epic epic = epics.get(epicId);
+        if (epic == null) return;
+        epic.setStatus(aggregateOf(epicId).status());
+        indexStatus(epic);
     }
 
 
@@ -289,47 +631,49 @@ public class InMemoryTaskManager implements TaskManager {
         Epic epic = epics.get(epicId);
         if (epic == null) return;
 
-        List<Integer> subs = epic.getSubtaskIds();
-        if (subs.isEmpty()) {
-            epic.setDuration(null);
-            epic.setStartTime(null);
-            epic.setEndTime(null);
-            return;
-        }
-
-        List<Subtask> validSubs = subs.stream()
-                .map(subtasks::get)
-                .filter(Objects::nonNull)
-                .filter(st -> st.getStartTime() != null && st.getDuration() != null)
-                .toList();
+        EpicAggregate aggregate = aggregateOf(epicId);
+        epic.setDuration(aggregate.duration());
+        epic.setStartTime(aggregate.startTime());
+        epic.setEndTime(aggregate.endTime());
+    }
 
-        if (validSubs.isEmpty()) {
-            epic.setDuration(null);
-            epic.setStartTime(null);
-            epic.setEndTime(null);
-            return;
-        }
+    protected void attachSubtask(Epic epic, Subtask subtask) {
+        subtasks.put(subtask.getId(), subtask);
+        indexStatus(subtask);
+        linkSubtask(epic, subtask);
+    }
 
-        Duration durationCounter = validSubs.stream()
-                .map(Subtask::getDuration)
-                .reduce(Duration::plus)
-                .orElse(null);
+    /**
+     * Records {@code subtask} in its epic and the epic's totals without storing it in the subtask map.
+     */
+    protected void linkSubtask(Epic epic, Subtask subtask) {
+        epic.addSubtaskId(subtask.getId());
+        aggregateOf(epic.getId()).put(subtask);
+    }
 
-        LocalDateTime minTime = validSubs.stream()
-                .map(Subtask::getStartTime)
-                .min(LocalDateTime::compareTo)
-                .orElse(null);
+    private EpicAggregate aggregateOf(int epicId) {
+        EpicAggregate aggregate = epicAggregates.get(epicId);
+        if (aggregate == null) {
+            aggregate = new EpicAggregate();
+            epicAggregates.put(epicId, aggregate);
+        }
+        return aggregate;
+    }
 
-        LocalDateTime maxTime = validSubs.stream()
-                .map(Subtask::getEndTime)
-                .max(LocalDateTime::compareTo)
-                .orElse(null);
 
-        epic.setDuration(durationCounter);
-        epic.setStartTime(minTime);
-        epic.setEndTime(maxTime);
+    protected int nextId() {
+        return ++generatorId;
     }
 
+    /**
+     * Replaces {@code previous} with {@code task} in the time index; {@code previous} is {@code null} for new tasks.
+     */
+    protected void reschedule(Task previous, Task task) {
+        if (previous != null) {
+            removeFromPrioritizedIfPresent(previous);
+        }
+        addToPrioritizedIfNeeded(task);
+    }
 
     protected void addToPrioritizedIfNeeded(Task t) {
         if (t instanceof Epic) return;
@@ -337,35 +681,111 @@ public class InMemoryTaskManager implements TaskManager {
         prioritizedTasks.add(t);
     }
 
-    private void removeFromPrioritizedIfPresent(Task t) {
+    protected void removeFromPrioritizedIfPresent(Task t) {
         if (t instanceof Epic) return;
-        if (t.getStartTime() == null) return;
-        prioritizedTasks.remove(t);
+        prioritizedTasks.remove(t.getId());
+    }
+
+    /**
+     * Drops every task or subtask from the time index at once.
+     */
+    protected void clearPrioritized(TaskType type) {
+        prioritizedTasks.clear(type);
     }
 
+    /**
+     * Moves {@code task} to its current status in the status index.
+     */
+    protected void indexStatus(Task task) {
+        statusIndex.put(task);
+    }
 
-    private boolean intersects(Task a, Task b) {
-        if (a == null || b == null) return false;
-        if (a.getStartTime() == null || a.getDuration() == null) return false;
-        if (b.getStartTime() == null || b.getDuration() == null) return false;
+    protected void unindexStatus(Task task) {
+        statusIndex.remove(task);
+    }
 
-        LocalDateTime aEnd = a.getEndTime();
-        LocalDateTime bEnd = b.getEndTime();
+    protected void clearStatusIndex(TaskType type) {
+        statusIndex.clear(type);
+    }
 
-        return a.getStartTime().isBefore(bEnd) && b.getStartTime().isBefore(aEnd);
+    /**
+     * Rebuilds the time index from the task and subtask maps in one pass, for use after a bulk load.
+     */
+    protected void rebuildPrioritized() {
+        List<Task> scheduled = new ArrayList<>(tasks.size() + subtasks.size());
+        scheduled.addAll(tasks.values());
+        scheduled.addAll(subtasks.values());
+        prioritizedTasks.rebuild(scheduled);
     }
 
+    /**
+     * Rebuilds the time index from slots collected while loading, without the tasks themselves.
+     */
+    void rebuildPrioritized(List<TimeIndex.Slot> taskSlots, List<TimeIndex.Slot> subtaskSlots) {
+        prioritizedTasks.rebuildSlots(taskSlots, subtaskSlots);
+    }
+
+    Task findStored(int id) {
+        Task task = findScheduled(id);
+        return task != null ? task : epics.get(id);
+    }
+
+    private Task findScheduled(int id) {
+        Task task = tasks.get(id);
+        return task != null ? task : subtasks.get(id);
+    }
 
-    private boolean hasIntersections(Task candidateTask) {
-        return prioritizedTasks.stream().filter(t -> t.getId() != candidateTask.getId()).anyMatch(other -> intersects(candidateTask, other));
+    // the index is updated before the maps on insert and after them on delete,
+    // so a concurrent reader may briefly see an id that no map resolves
+    private void addScheduled(List<Task> result, int id) {
+        Task task = findScheduled(id);
+        if (task != null) {
+            result.add(task);
+        }
     }
 
 
-    private void ensureNoOverlap(Task t) {
+    /**
+     * Validates a batch with one sort and sweep, then checks each interval against the calendar
+     * with {@code replaced} ids ignored, since their current slots are about to be freed.
+     */
+    private void ensureNoOverlap(List<? extends Task> batch, IntPredicate replaced) {
+        List<? extends Task> timed = batch.stream()
+                .filter(t -> !(t instanceof Epic))
+                .filter(t -> t.getStartTime() != null && t.getDuration() != null)
+                .sorted(BY_TIME)
+                .toList();
+
+        LocalDateTime latestEnd = null;
+        LocalDateTime latestEndOfEarlierStarts = null;
+        LocalDateTime previousStart = null;
+        for (Task t : timed) {
+            if (previousStart != null && t.getStartTime().isAfter(previousStart)) {
+                latestEndOfEarlierStarts = latestEnd;
+            }
+            // a zero-length interval only conflicts with intervals that start strictly before it
+            LocalDateTime bound = t.getDuration().isZero() ? latestEndOfEarlierStarts : latestEnd;
+            if (bound != null && t.getStartTime().isBefore(bound)) {
+                throw new ManagerTimeIntersectionException("Пересечение по времени внутри пакета. id=" + t.getId());
+            }
+            if (latestEnd == null || t.getEndTime().isAfter(latestEnd)) {
+                latestEnd = t.getEndTime();
+            }
+            previousStart = t.getStartTime();
+        }
+
+        for (Task t : timed) {
+            if (prioritizedTasks.overlaps(t.getStartTime(), t.getEndTime(), replaced)) {
+                throw new ManagerTimeIntersectionException("Пересечение по времени с другой задачей. id=" + t.getId());
+            }
+        }
+    }
+
+    protected void ensureNoOverlap(Task t) {
         if (t == null) return;
         if (t instanceof Epic) return;
         if (t.getStartTime() == null || t.getDuration() == null) return;
-        if (hasIntersections(t)) {
+        if (prioritizedTasks.overlaps(t)) {
             throw new ManagerTimeIntersectionException("Пересечение по времени с другой задачей. id=" + t.getId());
         }
     }
@@ -0,0 +1,31 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import java.util.function.Consumer;
+
+import ru.yandex.javacourse.schedule.tasks.Task;
+
+/**
+ * Store that keeps nothing: the manager's own maps are the only copy.
+ */
+final class InMemoryTaskStore implements TaskStore {
+
+    @Override
+    public void put(Task task) {
+    }
+
+    @Override
+    public void remove(int id) {
+    }
+
+    @Override
+    public void scan(Consumer<? super Task> action) {
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
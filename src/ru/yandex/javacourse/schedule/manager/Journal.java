@@ -0,0 +1,241 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import ru.yandex.javacourse.schedule.tasks.Task;
+import ru.yandex.javacourse.schedule.tasks.TaskType;
+
+/**
+ * Append-only log of changes made after the last snapshot.
+ * <p>
+ * Every record is absolute (put a whole row, delete an id, clear a type), so replaying a journal
+ * over a snapshot that already contains some of its changes still ends in the same state.
+ * <p>
+ * Records are kept in memory until {@link #take()} hands them to {@link #write}, so they can be collected
+ * under one lock and written to disk under another. The file is opened on the first write.
+ */
+final class Journal implements Closeable {
+    private static final String PUT = "+";
+    private static final String DELETE = "-";
+    private static final String CLEAR = "!";
+
+    private final Path path;
+    private FileChannel channel;
+    private StringBuilder pending = new StringBuilder();
+    // taken records a failed write left behind, written ahead of the next ones
+    private final StringBuilder unwritten = new StringBuilder();
+    private long size;
+
+    Journal(Path path) throws IOException {
+        this(path, Files.exists(path) ? Files.size(path) : 0);
+    }
+
+    /**
+     * Starts a journal at {@code path} whose file is taken to hold {@code size} bytes.
+     */
+    Journal(Path path, long size) {
+        this.path = path;
+        this.size = size;
+    }
+
+    void put(Task task) {
+        int start = pending.length();
+        pending.append(PUT).append(',');
+        CsvCodec.write(pending, task);
+        appended(start);
+    }
+
+    void delete(int id) {
+        int start = pending.length();
+        pending.append(DELETE).append(',').append(id);
+        appended(start);
+    }
+
+    void clear(TaskType type) {
+        int start = pending.length();
+        pending.append(CLEAR).append(',').append(type.name());
+        appended(start);
+    }
+
+    /**
+     * Returns the records added since the last call, for {@link #write}.
+     */
+    CharSequence take() {
+        StringBuilder records = pending;
+        pending = new StringBuilder(records.capacity());
+        return records;
+    }
+
+    /**
+     * Moves the records not yet taken from {@code next} into this journal, after its own.
+     */
+    void takeOver(Journal next) {
+        pending.append(next.take());
+        size += next.size;
+        next.size = 0;
+    }
+
+    /**
+     * Appends taken records to the file and forces them to the device. Records of a failed write are kept
+     * and written ahead of the records of the next one.
+     */
+    void write(CharSequence records) throws IOException {
+        unwritten.append(records);
+        if (unwritten.isEmpty()) {
+            return;
+        }
+        if (channel == null) {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(unwritten));
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        channel.force(false);
+        unwritten.setLength(0);
+    }
+
+    /**
+     * Writes the records added so far and forces them to the device.
+     */
+    void flush() throws IOException {
+        write(take());
+    }
+
+    /**
+     * Bytes written and added so far, the file it started with included.
+     */
+    long size() {
+        return size;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    /**
+     * Closes the file without writing the records not yet taken; a later write opens it again.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            try {
+                channel.close();
+            } finally {
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * Receives journal records in order.
+     */
+    interface Target {
+        void put(Task task);
+
+        void delete(int id);
+
+        void clear(TaskType type);
+    }
+
+    /**
+     * Applies the journal at {@code path}, if any, to rows keyed by id and returns the largest id it mentions.
+     */
+    static int replay(Path path, Map<Integer, Task> rows) throws IOException {
+        return replay(path, new Target() {
+            @Override
+            public void put(Task task) {
+                rows.put(task.getId(), task);
+            }
+
+            @Override
+            public void delete(int id) {
+                rows.remove(id);
+            }
+
+            @Override
+            public void clear(TaskType type) {
+                rows.values().removeIf(task -> task.getType() == type);
+            }
+        });
+    }
+
+    /**
+     * A last record cut off by a crash mid-append was never acknowledged, so it is skipped and truncated away,
+     * and later appends start on a fresh line.
+     */
+    static int replay(Path path, Target target) throws IOException {
+        int maxId = 0;
+        if (!Files.exists(path)) {
+            return maxId;
+        }
+        long torn = -1;
+        // malformed bytes are replaced rather than reported, since a torn record may end inside a character
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8))) {
+            CsvCodec.RowReader row = new CsvCodec.RowReader(reader);
+            while (true) {
+                try {
+                    if (!row.next()) {
+                        break;
+                    }
+                } catch (ManagerSaveException e) {
+                    // only an unclosed quote running to the end of input is a torn record
+                    if (!row.atEnd()) {
+                        throw e;
+                    }
+                    torn = row.recordOffset();
+                    break;
+                }
+                if (!row.terminated()) {
+                    torn = row.recordOffset();
+                    break;
+                }
+                switch (row.string(0)) {
+                    case PUT -> {
+                        Task task = CsvCodec.read(row, 1);
+                        target.put(task);
+                        maxId = Math.max(maxId, task.getId());
+                    }
+                    case DELETE -> {
+                        int id = row.intValue(1);
+                        target.delete(id);
+                        maxId = Math.max(maxId, id);
+                    }
+                    case CLEAR -> {
+                        TaskType type = row.enumValue(1, TaskType.values());
+                        target.clear(type);
+                    }
+                    default -> throw new ManagerSaveException("Журнал: неизвестная запись: " + row);
+                }
+            }
+        }
+        if (torn >= 0) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(torn);
+            }
+        }
+        return maxId;
+    }
+
+    private void appended(int start) {
+        pending.append('\n');
+        long bytes = 0;
+        for (int i = start; i < pending.length(); i++) {
+            bytes += CsvCodec.utf8Length(pending.charAt(i));
+        }
+        size += bytes;
+    }
+}
@@ -0,0 +1,176 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+import ru.yandex.javacourse.schedule.tasks.Task;
+import ru.yandex.javacourse.schedule.util.IntMap;
+import ru.yandex.javacourse.schedule.util.IntSet;
+import ru.yandex.javacourse.schedule.util.OpenAddressingIntMap;
+
+/**
+ * Task map whose unchanged values stay on disk.
+ * <p>
+ * Rows registered with {@link #index} are read through {@link CsvRowIndex} on first access and kept in
+ * a bounded LRU cache. Values passed to {@link #put} have no row on disk and stay pinned in memory.
+ * An evicted value is read again on the next access, so changes made to it in place are not kept.
+ */
+final class LazyTaskMap<V extends Task> implements IntMap<V> {
+    private final CsvRowIndex rows;
+    private final Class<V> type;
+    private final IntSet ids = new IntSet();
+    private final IntMap<V> pinned = new OpenAddressingIntMap<>();
+    private final LinkedHashMap<Integer, V> cache;
+
+    LazyTaskMap(CsvRowIndex rows, Class<V> type, int cacheSize) {
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("Размер кэша должен быть положительным: " + cacheSize);
+        }
+        this.rows = rows;
+        this.type = type;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, V> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Registers a row already recorded in the row index.
+     */
+    synchronized void index(int id) {
+        ids.add(id);
+    }
+
+    synchronized int cached() {
+        return cache.size();
+    }
+
+    @Override
+    public synchronized V get(int key) {
+        V value = pinned.get(key);
+        if (value != null || !ids.contains(key)) {
+            return value;
+        }
+        value = cache.get(key);
+        if (value == null) {
+            Task row = rows.read(key);
+            if (!type.isInstance(row)) {
+                throw new ManagerSaveException("CSV: строка " + key + " имеет тип " + row.getType());
+            }
+            value = type.cast(row);
+            cache.put(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public synchronized V put(int key, V value) {
+        V previous = ids.add(key) ? null : get(key);
+        cache.remove(key);
+        pinned.put(key, value);
+        return previous;
+    }
+
+    @Override
+    public synchronized V remove(int key) {
+        if (!ids.contains(key)) {
+            return null;
+        }
+        V previous = get(key);
+        ids.remove(key);
+        pinned.remove(key);
+        cache.remove(key);
+        return previous;
+    }
+
+    @Override
+    public synchronized boolean containsKey(int key) {
+        return ids.contains(key);
+    }
+
+    @Override
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return ids.isEmpty();
+    }
+
+    @Override
+    public synchronized void clear() {
+        ids.clear();
+        pinned.clear();
+        cache.clear();
+    }
+
+    @Override
+    public void forEachKey(IntConsumer action) {
+        int[] keys;
+        synchronized (this) {
+            keys = ids.toArray();
+        }
+        for (int key : keys) {
+            action.accept(key);
+        }
+    }
+
+    /**
+     * Reads values as the iteration reaches them, so a full pass does not hold them all at once.
+     */
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                int[] keys;
+                synchronized (LazyTaskMap.this) {
+                    keys = ids.toArray();
+                }
+                return new Iterator<>() {
+                    private int position;
+                    private V next = advance();
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public V next() {
+                        if (next == null) {
+                            throw new NoSuchElementException();
+                        }
+                        V current = next;
+                        next = advance();
+                        return current;
+                    }
+
+                    // skips keys removed since the iteration started
+                    private V advance() {
+                        while (position < keys.length) {
+                            V value = get(keys[position++]);
+                            if (value != null) {
+                                return value;
+                            }
+                        }
+                        return null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return LazyTaskMap.this.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,216 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import ru.yandex.javacourse.schedule.tasks.Task;
+import ru.yandex.javacourse.schedule.tasks.TaskType;
+import ru.yandex.javacourse.schedule.util.IntIterable;
+
+/**
+ * History that records every view and removal as one line of an append-only log.
+ * <p>
+ * A line holds a viewed id, or {@code -id} for a removal. Once the log has grown to {@link #GARBAGE_FACTOR}
+ * times its size after the last compaction, and to at least {@link #MIN_COMPACTION_RECORDS} lines, it is
+ * rewritten as the ids of the current history in order. Ids restored from the log are looked up on first use
+ * of the history, so opening a manager does not read the viewed tasks. A removal is written only for an id still
+ * in the history, so ids already evicted or never viewed cost nothing.
+ */
+final class LoggedHistoryManager implements HistoryManager, Closeable {
+    static final int MIN_COMPACTION_RECORDS = 1024;
+    static final int GARBAGE_FACTOR = 4;
+
+    private static final String REMOVE = "-";
+
+    private final Path path;
+    private final int capacity;
+    private ArrayHistoryManager delegate;
+    private IntFunction<? extends Task> resolver;
+    private int[] restored;
+    private BufferedWriter writer;
+    private boolean keepExisting;
+    private long records;
+    private long compactedRecords;
+
+    LoggedHistoryManager(Path path) {
+        this(path, InMemoryHistoryManager.DEFAULT_CAPACITY);
+    }
+
+    LoggedHistoryManager(Path path, int capacity) {
+        this.path = path;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Binds the history to the manager's lookup of stored tasks; the manager calls it once while constructed.
+     */
+    HistoryManager attach(IntFunction<? extends Task> resolver) {
+        this.resolver = resolver;
+        this.delegate = new ArrayHistoryManager(capacity, resolver);
+        return this;
+    }
+
+    /**
+     * Reads the log left by a previous manager and keeps appending to it. Without this call the first
+     * view starts a new log.
+     */
+    synchronized void restore() throws IOException {
+        keepExisting = true;
+        if (!Files.exists(path)) {
+            return;
+        }
+        LinkedHashSet<Integer> order = new LinkedHashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    if (line.startsWith(REMOVE)) {
+                        order.remove(Integer.parseInt(line.substring(REMOVE.length())));
+                    } else {
+                        Integer id = Integer.parseInt(line);
+                        order.remove(id);
+                        order.add(id);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new ManagerSaveException("История: неверная запись: " + line);
+                }
+                records++;
+            }
+        }
+        restored = new int[order.size()];
+        int i = 0;
+        for (int id : order) {
+            restored[i++] = id;
+        }
+    }
+
+    @Override
+    public synchronized void add(Task task) {
+        applyRestored();
+        if (task == null) {
+            return;
+        }
+        delegate.add(task);
+        write(Integer.toString(task.getId()));
+        commit();
+    }
+
+    @Override
+    public synchronized void remove(int id) {
+        applyRestored();
+        if (delegate.contains(id)) {
+            delegate.remove(id);
+            write(REMOVE + id);
+            commit();
+        }
+    }
+
+    /**
+     * Writes the removals of the batch and then flushes the log once.
+     */
+    @Override
+    public synchronized void removeAll(IntIterable ids) {
+        applyRestored();
+        ids.forEach(id -> {
+            if (delegate.contains(id)) {
+                write(REMOVE + id);
+            }
+        });
+        delegate.removeAll(ids);
+        commit();
+    }
+
+    /**
+     * Writes a removal for each id of the type found by walking the history, then drops them all at once.
+     */
+    @Override
+    public synchronized void removeAll(TaskType type) {
+        applyRestored();
+        delegate.forEachId(type, id -> write(REMOVE + id));
+        delegate.removeAll(type);
+        commit();
+    }
+
+    @Override
+    public synchronized List<Task> getHistory() {
+        applyRestored();
+        return delegate.getHistory();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private void applyRestored() {
+        if (restored == null) {
+            return;
+        }
+        int[] ids = restored;
+        restored = null;
+        for (int id : ids) {
+            Task task = resolver.apply(id);
+            if (task != null) {
+                delegate.add(task);
+            }
+        }
+    }
+
+    private void write(String record) {
+        try {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE,
+                        keepExisting ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+                keepExisting = true;
+            }
+            writer.write(record);
+            writer.newLine();
+            records++;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать историю: " + path, e);
+        }
+    }
+
+    private void commit() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+            if (records >= Math.max(MIN_COMPACTION_RECORDS, GARBAGE_FACTOR * compactedRecords)) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать историю: " + path, e);
+        }
+    }
+
+    private void compact() throws IOException {
+        close();
+        // the ids are written as they are, so tasks are neither looked up nor dropped when they do not resolve
+        StringBuilder lines = new StringBuilder();
+        delegate.forEachId(id -> lines.append(id).append('\n'));
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.writeString(tmp, lines, StandardCharsets.UTF_8);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        records = delegate.size();
+        compactedRecords = records;
+    }
+}
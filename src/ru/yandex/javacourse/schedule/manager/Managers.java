@@ -1,6 +1,10 @@
 package ru.yandex.javacourse.schedule.manager;
 
 import java.nio.file.Path;
+import java.util.Locale;
+import java.util.function.IntFunction;
+
+import ru.yandex.javacourse.schedule.tasks.Task;
 
 /**
  * Default managers.
@@ -8,15 +12,74 @@ import java.nio.file.Path;
  * @author Vladimir Ivanov (ivanov.vladimir.l@gmail.com)
  */
 public class Managers {
+    public static final String STORE_PROPERTY = "kanban.store";
+
     public static TaskManager getDefault() {
         return new InMemoryTaskManager();
     }
 
+    public static TaskManager getDefault(StorageType storageType) {
+        return new InMemoryTaskManager(storageType);
+    }
+
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager();
+    }
+
+    public static PersistentTaskManager getPersistent() {
+        return new PersistentTaskManager();
+    }
+
+    public static EventLoopTaskManager getEventLoop(TaskManager delegate) {
+        return new EventLoopTaskManager(delegate);
+    }
+
     public static FileBackedTaskManager getDefaultFileBackedTask(Path file) {
         return new FileBackedTaskManager(file);
     }
 
+    public static FileBackedTaskManager getDefaultFileBackedTask(Path file, StorageType storageType) {
+        return new FileBackedTaskManager(file, FileBackedTaskManager.Options.DEFAULT.withStorageType(storageType));
+    }
+
+    public static FileBackedTaskManager getJournaledFileBackedTask(Path file) {
+        return new FileBackedTaskManager(file, FileBackedTaskManager.Options.DEFAULT.withSaveMode(SaveMode.JOURNAL));
+    }
+
+    public static FileBackedTaskManager getSegmentedFileBackedTask(Path file) {
+        return new FileBackedTaskManager(file, FileBackedTaskManager.Options.DEFAULT.withSaveMode(SaveMode.SEGMENTED));
+    }
+
+    /**
+     * Manager persisted as {@code storeType} at {@code file}, with the state already saved there.
+     */
+    public static InMemoryTaskManager getStored(StoreType storeType, Path file) {
+        return storeType.open(file);
+    }
+
+    /**
+     * Same as {@link #getStored(StoreType, Path)}, with the store named by the {@value #STORE_PROPERTY}
+     * system property, {@code CSV} by default.
+     */
+    public static InMemoryTaskManager getStored(Path file) {
+        String name = System.getProperty(STORE_PROPERTY, StoreType.CSV.name());
+        StoreType storeType;
+        try {
+            storeType = StoreType.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестное хранилище: " + name, e);
+        }
+        return getStored(storeType, file);
+    }
+
     public static HistoryManager getDefaultHistory() {
-        return new InMemoryHistoryManager();
+        return new ArrayHistoryManager();
+    }
+
+    /**
+     * History that keeps only ids and looks the tasks up with {@code resolver} when read.
+     */
+    public static HistoryManager getDefaultHistory(IntFunction<? extends Task> resolver) {
+        return new ArrayHistoryManager(InMemoryHistoryManager.DEFAULT_CAPACITY, resolver);
     }
 }
@@ -1,16 +1,26 @@
 package ru.yandex.javacourse.schedule.manager;
 
 public final class Node<E> {
+    private final int key;
     private final E data;
     private Node<E> next;
     private Node<E> prev;
 
     public Node(Node<E> prev, E data, Node<E> next) {
+        this(prev, 0, data, next);
+    }
+
+    public Node(Node<E> prev, int key, E data, Node<E> next) {
         this.prev = prev;
+        this.key = key;
         this.data = data;
         this.next = next;
     }
 
+    public int getKey() {
+        return key;
+    }
+
     public E getData() {
         return data;
     }
@@ -32,4 +42,3 @@ public final class Node<E> {
     }
 
 }
-
@@ -0,0 +1,110 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import ru.yandex.javacourse.schedule.tasks.Task;
+
+/**
+ * Reads a CSV snapshot by memory-mapping it and parsing record-aligned chunks in parallel
+ * on the common fork-join pool. Rows come back in file order.
+ */
+final class ParallelCsvReader {
+    private static final long MIN_CHUNK = 1L << 20;
+    private static final long MAX_CHUNK = 1L << 28;
+
+    private ParallelCsvReader() {
+    }
+
+    static List<Task> read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return List.of();
+            }
+            long[] bounds = chunkBounds(channel, size);
+            String header = decode(channel, 0, bounds[0]).toString().trim();
+            if (!CsvCodec.HEADER.equals(header)) {
+                throw new ManagerSaveException("Неверный заголовок CSV: " + header);
+            }
+
+            List<List<Task>> chunks = IntStream.range(0, bounds.length - 1)
+                    .parallel()
+                    .mapToObj(i -> parseChunk(channel, bounds[i], bounds[i + 1]))
+                    .toList();
+
+            int total = 0;
+            for (List<Task> chunk : chunks) {
+                total += chunk.size();
+            }
+            List<Task> rows = new ArrayList<>(total);
+            chunks.forEach(rows::addAll);
+            return rows;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Returns chunk boundaries, about four chunks per core. The first boundary ends the header line.
+     * A line break inside a quoted field does not end a record, so boundaries come from one sequential
+     * scan that tracks quotes; that scan only looks at bytes and is much cheaper than parsing.
+     */
+    private static long[] chunkBounds(FileChannel channel, long size) throws IOException {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        long chunk = Math.min(MAX_CHUNK, Math.max(MIN_CHUNK, size / (parallelism * 4L) + 1));
+        List<Long> bounds = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        boolean quoted = false;
+        long next = 0;
+        long position = 0;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted && position + i >= next) {
+                    bounds.add(position + i + 1);
+                    next = position + i + 1 + chunk;
+                }
+            }
+            position += read;
+        }
+        if (bounds.isEmpty() || bounds.getLast() < size) {
+            bounds.add(size);
+        }
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static CharBuffer decode(FileChannel channel, long start, long end) throws IOException {
+        return StandardCharsets.UTF_8.decode(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+    }
+
+    private static List<Task> parseChunk(FileChannel channel, long start, long end) {
+        try {
+            CharBuffer chars = decode(channel, start, end);
+            CsvCodec.RowReader row = new CsvCodec.RowReader(chars.array(), chars.arrayOffset(), chars.remaining());
+            List<Task> rows = new ArrayList<>();
+            while (row.next()) {
+                rows.add(CsvCodec.read(row, 0));
+            }
+            return rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
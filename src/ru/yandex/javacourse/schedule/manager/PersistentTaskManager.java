@@ -0,0 +1,411 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import ru.yandex.javacourse.schedule.tasks.Epic;
+import ru.yandex.javacourse.schedule.tasks.Subtask;
+import ru.yandex.javacourse.schedule.tasks.Task;
+import ru.yandex.javacourse.schedule.tasks.TaskStatus;
+import ru.yandex.javacourse.schedule.tasks.TaskType;
+import ru.yandex.javacourse.schedule.util.IntSet;
+import ru.yandex.javacourse.schedule.util.PersistentIntMap;
+
+/**
+ * Task manager that hands out shared immutable tasks, see {@link Task#snapshot()}.
+ * <p>
+ * Changes are applied under a lock by an inner {@link InMemoryTaskManager} that callers never see: tasks passed
+ * in are copied first, so callers may keep changing them. The tasks each change touched, and the epics of touched
+ * subtasks, are then frozen into persistent maps that share everything else with the previous {@link Board}.
+ * Reads take the current board without locking or copying, and {@link #snapshot()} returns it in O(1); a change
+ * made in {@link #inBatch} becomes visible to other threads only as a whole. Views are recorded through
+ * {@link BufferedHistoryManager}.
+ */
+public class PersistentTaskManager implements TaskManager {
+    private final ReentrantLock lock = new ReentrantLock();
+    // ids put or removed by the engine since the board was last built
+    private final IntSet changed = new IntSet();
+    // ids removed from the board but not yet from the history
+    private IntSet removed = new IntSet();
+    private final InMemoryTaskManager engine;
+    private final HistoryManager history;
+    private Board staged = Board.EMPTY;
+    private volatile Board board = Board.EMPTY;
+    private int depth;
+
+    public PersistentTaskManager() {
+        this(StorageType.HASH_MAP);
+    }
+
+    public PersistentTaskManager(StorageType storageType) {
+        engine = new InMemoryTaskManager(storageType, new ChangeLog());
+        history = new BufferedHistoryManager(Managers.getDefaultHistory(id -> current().find(id)));
+    }
+
+    /**
+     * Immutable state of the manager. Maps of two boards share the tasks and branches that did not change
+     * between them.
+     */
+    public record Board(PersistentIntMap<Task> tasks, PersistentIntMap<Subtask> subtasks,
+                        PersistentIntMap<Epic> epics) {
+        static final Board EMPTY = new Board(PersistentIntMap.empty(), PersistentIntMap.empty(),
+                PersistentIntMap.empty());
+
+        public Task find(int id) {
+            Task task = tasks.get(id);
+            if (task == null) {
+                task = subtasks.get(id);
+            }
+            return task == null ? epics.get(id) : task;
+        }
+    }
+
+    /**
+     * Returns the current state; later changes do not affect it.
+     */
+    public Board snapshot() {
+        return current();
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return current().tasks().values();
+    }
+
+    @Override
+    public List<Subtask> getSubtasks() {
+        return current().subtasks().values();
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return current().epics().values();
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        Board board = current();
+        List<Subtask> result = new ArrayList<>();
+        Epic epic = board.epics().get(epicId);
+        if (epic != null) {
+            epic.forEachSubtaskId(id -> {
+                Subtask subtask = board.subtasks().get(id);
+                if (subtask != null) {
+                    result.add(subtask);
+                }
+            });
+        }
+        return result;
+    }
+
+    @Override
+    public Task getTask(int id) {
+        Task task = current().tasks().get(id);
+        history.add(task);
+        return task;
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        Subtask subtask = current().subtasks().get(id);
+        history.add(subtask);
+        return subtask;
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        Epic epic = current().epics().get(id);
+        history.add(epic);
+        return epic;
+    }
+
+    /**
+     * Sets the new id on {@code task} unless it is immutable.
+     */
+    @Override
+    public int addNewTask(Task task) {
+        return write(() -> adoptId(task, engine.addNewTask(task.copy())));
+    }
+
+    @Override
+    public int addNewEpic(Epic epic) {
+        return write(() -> adoptId(epic, engine.addNewEpic(epic.copy())));
+    }
+
+    @Override
+    public Integer addNewSubtask(Subtask subtask) {
+        return write(() -> {
+            Integer id = engine.addNewSubtask(subtask.copy());
+            if (id != null) {
+                adoptId(subtask, id);
+            }
+            return id;
+        });
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        run(() -> engine.updateTask(task.copy()));
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        run(() -> engine.updateEpic(epic));
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        run(() -> engine.updateSubtask(subtask.copy()));
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        run(() -> engine.deleteTask(id));
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        run(() -> engine.deleteEpic(id));
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        run(() -> engine.deleteSubtask(id));
+    }
+
+    @Override
+    public void deleteTasks() {
+        run(engine::deleteTasks);
+    }
+
+    @Override
+    public void deleteSubtasks() {
+        run(engine::deleteSubtasks);
+    }
+
+    @Override
+    public void deleteEpics() {
+        run(engine::deleteEpics);
+    }
+
+    @Override
+    public List<Integer> addNewTasks(List<? extends Task> tasks) {
+        return write(() -> {
+            List<Integer> ids = engine.addNewTasks(tasks.stream().map(Task::copy).toList());
+            for (int i = 0; i < ids.size(); i++) {
+                adoptId(tasks.get(i), ids.get(i));
+            }
+            return ids;
+        });
+    }
+
+    @Override
+    public List<Integer> addNewSubtasks(List<Subtask> subtasks) {
+        return write(() -> {
+            List<Integer> ids = engine.addNewSubtasks(subtasks.stream().map(Subtask::copy).toList());
+            for (int i = 0; i < ids.size(); i++) {
+                if (ids.get(i) != null) {
+                    adoptId(subtasks.get(i), ids.get(i));
+                }
+            }
+            return ids;
+        });
+    }
+
+    @Override
+    public void updateAll(List<? extends Task> tasks) {
+        run(() -> engine.updateAll(tasks.stream().map(Task::copy).toList()));
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        run(() -> engine.deleteAll(ids));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return history.getHistory();
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskType type, TaskStatus status) {
+        return read(() -> frozen(engine.getTasksByStatus(type, status)));
+    }
+
+    @Override
+    public int countByStatus(TaskType type, TaskStatus status) {
+        return read(() -> engine.countByStatus(type, status));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return read(() -> frozen(engine.getPrioritizedTasks()));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return read(() -> frozen(engine.getPrioritizedTasks(from, to)));
+    }
+
+    /**
+     * Returns a cursor over at most {@code limit} tasks of the current board.
+     */
+    @Override
+    public Iterator<Task> iteratePrioritizedTasks(LocalDateTime from, LocalDateTime to, int limit) {
+        return read(() -> {
+            List<Task> tasks = new ArrayList<>();
+            engine.iteratePrioritizedTasks(from, to, limit).forEachRemaining(tasks::add);
+            return frozen(tasks);
+        }).iterator();
+    }
+
+    @Override
+    public Optional<LocalDateTime> findFreeSlot(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter) {
+        return read(() -> engine.findFreeSlot(duration, notBefore, notAfter));
+    }
+
+    @Override
+    public List<LocalDateTime> findFreeSlots(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter,
+                                             int limit) {
+        return read(() -> engine.findFreeSlots(duration, notBefore, notAfter, limit));
+    }
+
+    /**
+     * Publishes the changes of {@code action} together when it returns.
+     */
+    @Override
+    public void inBatch(Runnable action) {
+        run(action);
+    }
+
+    private Board current() {
+        // the batch owner reads its own changes, everyone else the last published board
+        if (lock.isHeldByCurrentThread()) {
+            return stage();
+        }
+        return board;
+    }
+
+    private int adoptId(Task task, int id) {
+        if (!task.isFrozen()) {
+            task.setId(id);
+        }
+        return id;
+    }
+
+    private List<Task> frozen(List<Task> live) {
+        Board board = stage();
+        List<Task> result = new ArrayList<>(live.size());
+        for (Task task : live) {
+            result.add(board.find(task.getId()));
+        }
+        return result;
+    }
+
+    private void run(Runnable action) {
+        write(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private <R> R write(Supplier<R> action) {
+        lock.lock();
+        depth++;
+        try {
+            return action.get();
+        } finally {
+            if (--depth == 0) {
+                board = stage();
+                if (!removed.isEmpty()) {
+                    history.removeAll(removed);
+                    removed = new IntSet();
+                }
+            }
+            lock.unlock();
+        }
+    }
+
+    private <R> R read(Supplier<R> action) {
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies the changed ids to the staged board; called under the lock.
+     */
+    private Board stage() {
+        if (changed.isEmpty()) {
+            return staged;
+        }
+        PersistentIntMap<Task> tasks = staged.tasks();
+        PersistentIntMap<Subtask> subtasks = staged.subtasks();
+        PersistentIntMap<Epic> epics = staged.epics();
+        IntSet touchedEpics = new IntSet();
+        for (int id : changed.toArray()) {
+            Subtask previous = subtasks.get(id);
+            if (previous != null) {
+                touchedEpics.add(previous.getEpicId());
+            }
+            Task task = engine.tasks.get(id);
+            Subtask subtask = engine.subtasks.get(id);
+            tasks = task != null ? tasks.put(id, task.snapshot()) : tasks.remove(id);
+            subtasks = subtask != null ? subtasks.put(id, subtask.snapshot()) : subtasks.remove(id);
+            if (subtask != null) {
+                touchedEpics.add(subtask.getEpicId());
+            }
+            if (engine.epics.get(id) != null) {
+                touchedEpics.add(id);
+            } else if (task == null && subtask == null) {
+                epics = epics.remove(id);
+                removed.add(id);
+            }
+        }
+        for (int id : touchedEpics.toArray()) {
+            Epic epic = engine.epics.get(id);
+            epics = epic != null ? epics.put(id, epic.snapshot()) : epics.remove(id);
+        }
+        changed.clear();
+        staged = new Board(tasks, subtasks, epics);
+        return staged;
+    }
+
+    /**
+     * Store of the engine that only notes which ids changed.
+     */
+    private final class ChangeLog implements TaskStore {
+        @Override
+        public void put(Task task) {
+            changed.add(task.getId());
+        }
+
+        @Override
+        public void remove(int id) {
+            changed.add(id);
+        }
+
+        @Override
+        public void scan(Consumer<? super Task> action) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ru.yandex.javacourse.schedule.manager;
+
+/**
+ * How {@link FileBackedTaskManager} persists its changes.
+ */
+public enum SaveMode {
+    /**
+     * Every change rewrites the whole file.
+     */
+    SNAPSHOT,
+    /**
+     * Every change appends a record to a journal next to the file; the journal is rolled into
+     * a fresh snapshot in the background once it grows past a threshold.
+     */
+    JOURNAL,
+    /**
+     * The snapshot is split into CSV segments of consecutive ids; a change rewrites only the segments it touched.
+     */
+    SEGMENTED
+}
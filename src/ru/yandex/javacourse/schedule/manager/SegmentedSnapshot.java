@@ -0,0 +1,148 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import ru.yandex.javacourse.schedule.tasks.Task;
+
+/**
+ * Snapshot split into CSV segments of {@link #SEGMENT_SIZE} consecutive ids, so a change rewrites only
+ * the segments it touched.
+ * <p>
+ * Segments of one generation live in {@code <file>.segments/<generation>}. The file itself holds only
+ * the manifest line {@code TKSG,<segment size>,<generation>}. A full write goes to a new generation and
+ * replaces the manifest last, so until then the previous state stays in force. Each segment is replaced
+ * atomically, but a change spanning several segments is not atomic as a whole.
+ */
+final class SegmentedSnapshot {
+    static final int SEGMENT_SIZE = 1024;
+
+    private static final String MAGIC = "TKSG";
+
+    record Manifest(int segmentSize, long generation) {
+    }
+
+    private SegmentedSnapshot() {
+    }
+
+    /**
+     * Returns the manifest stored in {@code file}, or {@code null} if it holds an ordinary snapshot.
+     */
+    static Manifest manifest(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            char[] magic = new char[MAGIC.length()];
+            if (reader.read(magic) != magic.length || !MAGIC.equals(new String(magic))) {
+                return null;
+            }
+            String line = MAGIC + reader.readLine();
+            String[] fields = line.split(",");
+            try {
+                if (fields.length != 3) {
+                    throw new NumberFormatException();
+                }
+                Manifest manifest = new Manifest(Integer.parseInt(fields[1]), Long.parseLong(fields[2]));
+                if (manifest.segmentSize() <= 0 || manifest.generation() < 0) {
+                    throw new NumberFormatException();
+                }
+                return manifest;
+            } catch (NumberFormatException e) {
+                throw new ManagerSaveException("Неверный манифест сегментов: " + line);
+            }
+        }
+    }
+
+    static String manifestLine(Manifest manifest) {
+        return MAGIC + "," + manifest.segmentSize() + "," + manifest.generation() + "\n";
+    }
+
+    static Path directoryOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".segments");
+    }
+
+    static Path generationOf(Path file, long generation) {
+        return directoryOf(file).resolve(Long.toString(generation));
+    }
+
+    static Path segmentOf(Path generation, int segment) {
+        return generation.resolve(String.format("%08d.csv", segment));
+    }
+
+    static int segmentNumber(int id) {
+        return Math.floorDiv(id, SEGMENT_SIZE);
+    }
+
+    /**
+     * Reads every segment of the generation named by {@code manifest}, segments in parallel.
+     */
+    static List<Task> read(Path file, Manifest manifest) throws IOException {
+        Path generation = generationOf(file, manifest.generation());
+        if (!Files.isDirectory(generation)) {
+            throw new ManagerSaveException("Нет каталога сегментов: " + generation);
+        }
+        List<Path> segments;
+        try (Stream<Path> listing = Files.list(generation)) {
+            segments = listing.filter(path -> path.getFileName().toString().endsWith(".csv"))
+                    .sorted(Comparator.comparing(Path::getFileName))
+                    .toList();
+        }
+        try {
+            List<List<Task>> chunks = segments.parallelStream()
+                    .map(segment -> {
+                        try {
+                            return ParallelCsvReader.read(segment);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .toList();
+            List<Task> rows = new ArrayList<>();
+            chunks.forEach(rows::addAll);
+            return rows;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Deletes the segment directories of {@code file} except generation {@code keep}; a negative value keeps none.
+     */
+    static void deleteOtherGenerations(Path file, long keep) throws IOException {
+        Path directory = directoryOf(file);
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> generations = Files.newDirectoryStream(directory)) {
+            for (Path generation : generations) {
+                if (!generation.getFileName().toString().equals(Long.toString(keep))) {
+                    deleteTree(generation);
+                }
+            }
+        }
+        if (keep < 0) {
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    static void deleteTree(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> children = Files.list(path)) {
+                for (Path child : children.toList()) {
+                    deleteTree(child);
+                }
+            }
+        }
+        Files.deleteIfExists(path);
+    }
+}
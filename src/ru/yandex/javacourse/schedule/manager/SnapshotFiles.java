@@ -0,0 +1,76 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import ru.yandex.javacourse.schedule.tasks.Task;
+
+/**
+ * Atomic writing of whole snapshot files.
+ */
+final class SnapshotFiles {
+
+    @FunctionalInterface
+    interface SnapshotWrite {
+        void writeTo(Path target) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface StreamWrite {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private SnapshotFiles() {
+    }
+
+    /**
+     * Encodes the rows right away, since the tasks may change before the returned write runs.
+     */
+    static SnapshotWrite capture(List<? extends Task> rows, SnapshotFormat format) {
+        if (format == SnapshotFormat.CSV) {
+            StringBuilder csv = new StringBuilder(64 * (rows.size() + 1));
+            csv.append(CsvCodec.HEADER).append('\n');
+            for (Task task : rows) {
+                CsvCodec.write(csv, task);
+                csv.append('\n');
+            }
+            return target -> writeCsv(target, csv);
+        }
+        byte[] bytes = BinarySnapshot.encode(rows, format == SnapshotFormat.BINARY_WITH_DICTIONARY);
+        return target -> replace(target, out -> out.write(bytes));
+    }
+
+    static void writeCsv(Path target, CharSequence csv) throws IOException {
+        replace(target, out -> {
+            BufferedWriter bufferedWriter = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            bufferedWriter.append(csv);
+            bufferedWriter.flush();
+        });
+    }
+
+    /**
+     * Writes to a temporary file first, so a reader never sees a half-written snapshot. The file is forced to
+     * the device before the move, so the moved snapshot survives a crash.
+     */
+    static void replace(Path target, StreamWrite content) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            content.writeTo(out);
+            out.flush();
+            channel.force(false);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.javacourse.schedule.manager;
+
+/**
+ * File format of the snapshot written by {@link FileBackedTaskManager}. Loading detects the format by itself.
+ */
+public enum SnapshotFormat {
+    /**
+     * Text, one row per task.
+     */
+    CSV,
+    /**
+     * Versioned binary rows, see {@link BinarySnapshot}.
+     */
+    BINARY,
+    /**
+     * Binary rows with names and descriptions stored once in a dictionary; pays off when they repeat.
+     */
+    BINARY_WITH_DICTIONARY
+}
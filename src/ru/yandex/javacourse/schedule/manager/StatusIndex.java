@@ -0,0 +1,58 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import ru.yandex.javacourse.schedule.tasks.Task;
+import ru.yandex.javacourse.schedule.tasks.TaskStatus;
+import ru.yandex.javacourse.schedule.tasks.TaskType;
+import ru.yandex.javacourse.schedule.util.IntSet;
+
+/**
+ * Ids of tasks, subtasks and epics grouped by type and status, so a status is listed or counted without a scan.
+ * <p>
+ * A put drops the id from the other statuses of its type, so a task changed in place before its update
+ * still leaves its old status.
+ */
+final class StatusIndex {
+    private final EnumMap<TaskType, EnumMap<TaskStatus, IntSet>> ids = new EnumMap<>(TaskType.class);
+
+    StatusIndex() {
+        for (TaskType type : TaskType.values()) {
+            EnumMap<TaskStatus, IntSet> byStatus = new EnumMap<>(TaskStatus.class);
+            for (TaskStatus status : TaskStatus.values()) {
+                byStatus.put(status, new IntSet());
+            }
+            ids.put(type, byStatus);
+        }
+    }
+
+    void put(Task task) {
+        for (Map.Entry<TaskStatus, IntSet> entry : ids.get(task.getType()).entrySet()) {
+            if (entry.getKey() == task.getStatus()) {
+                entry.getValue().add(task.getId());
+            } else {
+                entry.getValue().remove(task.getId());
+            }
+        }
+    }
+
+    void remove(Task task) {
+        for (IntSet set : ids.get(task.getType()).values()) {
+            set.remove(task.getId());
+        }
+    }
+
+    void clear(TaskType type) {
+        for (IntSet set : ids.get(type).values()) {
+            set.clear();
+        }
+    }
+
+    /**
+     * Returns the live set; callers must not change it.
+     */
+    IntSet ids(TaskType type, TaskStatus status) {
+        return ids.get(type).get(status);
+    }
+}
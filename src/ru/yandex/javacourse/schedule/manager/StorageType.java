@@ -0,0 +1,41 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import ru.yandex.javacourse.schedule.util.BoxedIntMap;
+import ru.yandex.javacourse.schedule.util.ConcurrentIntMap;
+import ru.yandex.javacourse.schedule.util.IntMap;
+import ru.yandex.javacourse.schedule.util.OpenAddressingIntMap;
+
+/**
+ * Backing map used by {@link InMemoryTaskManager} for tasks, epics and subtasks.
+ */
+public enum StorageType {
+    /**
+     * {@link java.util.HashMap} with boxed keys.
+     */
+    HASH_MAP {
+        @Override
+        <V> IntMap<V> newMap() {
+            return new BoxedIntMap<>();
+        }
+    },
+    /**
+     * Open-addressing map with primitive keys, no per-entry objects.
+     */
+    OPEN_ADDRESSING {
+        @Override
+        <V> IntMap<V> newMap() {
+            return new OpenAddressingIntMap<>();
+        }
+    },
+    /**
+     * {@link java.util.concurrent.ConcurrentHashMap} with boxed keys, safe for concurrent access.
+     */
+    CONCURRENT {
+        @Override
+        <V> IntMap<V> newMap() {
+            return new ConcurrentIntMap<>();
+        }
+    };
+
+    abstract <V> IntMap<V> newMap();
+}
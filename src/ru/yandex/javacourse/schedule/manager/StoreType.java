@@ -0,0 +1,60 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Persistence picked by {@link Managers#getStored}. The file stores are {@link FileBackedTaskManager}
+ * configurations, so each deployment reads and writes the same files that manager does.
+ */
+public enum StoreType {
+    /**
+     * Nothing is persisted.
+     */
+    MEMORY {
+        @Override
+        InMemoryTaskManager open(Path file) {
+            return new InMemoryTaskManager();
+        }
+    },
+    /**
+     * CSV snapshot rewritten on every change.
+     */
+    CSV {
+        @Override
+        InMemoryTaskManager open(Path file) {
+            return openFile(file, SaveMode.SNAPSHOT, SnapshotFormat.CSV);
+        }
+    },
+    /**
+     * Binary snapshot rewritten on every change.
+     */
+    BINARY {
+        @Override
+        InMemoryTaskManager open(Path file) {
+            return openFile(file, SaveMode.SNAPSHOT, SnapshotFormat.BINARY);
+        }
+    },
+    /**
+     * Append-only journal of changes, rolled into a snapshot when it grows.
+     */
+    LOG {
+        @Override
+        InMemoryTaskManager open(Path file) {
+            return openFile(file, SaveMode.JOURNAL, SnapshotFormat.CSV);
+        }
+    };
+
+    abstract InMemoryTaskManager open(Path file);
+
+    /**
+     * Loads the manager saved at {@code file}, whose format is detected, or starts an empty one there.
+     */
+    private static FileBackedTaskManager openFile(Path file, SaveMode saveMode, SnapshotFormat format) {
+        FileBackedTaskManager.Options options = FileBackedTaskManager.Options.DEFAULT.withSaveMode(saveMode);
+        if (Files.exists(file)) {
+            return FileBackedTaskManager.loadFromFile(file.toFile(), options);
+        }
+        return new FileBackedTaskManager(file, options.withSnapshotFormat(format));
+    }
+}
@@ -0,0 +1,43 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import java.util.List;
+
+import ru.yandex.javacourse.schedule.tasks.Task;
+import ru.yandex.javacourse.schedule.tasks.TaskType;
+import ru.yandex.javacourse.schedule.util.IntIterable;
+
+/**
+ * History manager that serializes every call to a delegate.
+ */
+public class SynchronizedHistoryManager implements HistoryManager {
+    private final HistoryManager delegate;
+
+    public SynchronizedHistoryManager(HistoryManager delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized void add(Task task) {
+        delegate.add(task);
+    }
+
+    @Override
+    public synchronized void remove(int id) {
+        delegate.remove(id);
+    }
+
+    @Override
+    public synchronized void removeAll(IntIterable ids) {
+        delegate.removeAll(ids);
+    }
+
+    @Override
+    public synchronized void removeAll(TaskType type) {
+        delegate.removeAll(type);
+    }
+
+    @Override
+    public synchronized List<Task> getHistory() {
+        return delegate.getHistory();
+    }
+}
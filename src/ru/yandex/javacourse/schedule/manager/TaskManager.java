@@ -1,10 +1,17 @@
 package ru.yandex.javacourse.schedule.manager;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 
 import ru.yandex.javacourse.schedule.tasks.Epic;
 import ru.yandex.javacourse.schedule.tasks.Subtask;
 import ru.yandex.javacourse.schedule.tasks.Task;
+import ru.yandex.javacourse.schedule.tasks.TaskStatus;
+import ru.yandex.javacourse.schedule.tasks.TaskType;
 
 /**
  * Task manager.
@@ -50,7 +57,46 @@ public interface TaskManager {
 
     void deleteEpics();
 
+    /**
+     * Adds all tasks or none: the whole batch is checked for time overlaps before anything is stored.
+     */
+    List<Integer> addNewTasks(List<? extends Task> tasks);
+
+    /**
+     * Adds all subtasks or none; subtasks of a missing epic are skipped and get a {@code null} id.
+     */
+    List<Integer> addNewSubtasks(List<Subtask> subtasks);
+
+    /**
+     * Updates tasks, subtasks and epics in one step; nothing is changed if the new times overlap.
+     */
+    void updateAll(List<? extends Task> tasks);
+
+    void deleteAll(Collection<Integer> ids);
+
     List<Task> getHistory();
 
+    /**
+     * Tasks, subtasks or epics, as {@code type} says, that have {@code status}, read from an index kept up to date.
+     */
+    List<Task> getTasksByStatus(TaskType type, TaskStatus status);
+
+    int countByStatus(TaskType type, TaskStatus status);
+
     List<Task> getPrioritizedTasks();
+
+    List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to);
+
+    Iterator<Task> iteratePrioritizedTasks(LocalDateTime from, LocalDateTime to, int limit);
+
+    Optional<LocalDateTime> findFreeSlot(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter);
+
+    List<LocalDateTime> findFreeSlots(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter, int limit);
+
+    /**
+     * Runs a group of calls on this manager; persistent managers save once at the end instead of after each call.
+     */
+    default void inBatch(Runnable action) {
+        action.run();
+    }
 }
@@ -0,0 +1,40 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import java.util.function.Consumer;
+
+import ru.yandex.javacourse.schedule.tasks.Task;
+
+/**
+ * Storage that {@link InMemoryTaskManager} writes every change through to.
+ * <p>
+ * Rows are whole tasks, epics and subtasks keyed by id; epic status and time are derived and may be stale.
+ * Failures are reported as {@link ManagerSaveException}.
+ */
+public interface TaskStore extends AutoCloseable {
+    /**
+     * Stores {@code task}, replacing the row with the same id.
+     */
+    void put(Task task);
+
+    void remove(int id);
+
+    /**
+     * Passes every stored row to {@code action}, in no particular order.
+     */
+    void scan(Consumer<? super Task> action);
+
+    /**
+     * Runs {@code action} and writes the changes it makes together, once it returns.
+     */
+    default void batch(Runnable action) {
+        action.run();
+    }
+
+    /**
+     * Writes changes still buffered.
+     */
+    void flush();
+
+    @Override
+    void close();
+}
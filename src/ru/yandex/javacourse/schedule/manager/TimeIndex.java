@@ -0,0 +1,415 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+import ru.yandex.javacourse.schedule.tasks.Subtask;
+import ru.yandex.javacourse.schedule.tasks.Task;
+import ru.yandex.javacourse.schedule.tasks.TaskType;
+import ru.yandex.javacourse.schedule.util.IntMap;
+import ru.yandex.javacourse.schedule.util.OpenAddressingIntMap;
+
+/**
+ * Ordered index of tasks with a start time.
+ * <p>
+ * Slots are stored by id, so a task mutated in place is still removed correctly.
+ * Scheduled intervals never overlap, therefore ordering them by start and then by end
+ * orders their ends as well, and an intersection check needs only the nearest neighbour.
+ * <p>
+ * Tasks and subtasks are kept in separate parts, so {@link #clear(TaskType)} drops one type in O(1).
+ * Queries over the whole calendar merge the two parts: a neighbour lookup asks both and takes the nearer one.
+ */
+final class TimeIndex {
+
+    /**
+     * The minute keys order slots first, and the exact times only break ties within a minute.
+     */
+    record Slot(int id, LocalDateTime start, LocalDateTime end, long startMinute, long endMinute) {
+        Slot(int id, LocalDateTime start, LocalDateTime end) {
+            this(id, start, end, Task.epochMinute(start), Task.epochMinute(end));
+        }
+
+        static Slot of(Task task) {
+            return new Slot(task.getId(), task.getStartTime(), task.getEndTime(),
+                    task.getStartMinute(), task.getEndMinute());
+        }
+    }
+
+    private static final Comparator<Slot> START_ORDER = (a, b) -> {
+        int result = compareStarts(a, b);
+        return result != 0 ? result : Integer.compare(a.id(), b.id());
+    };
+    private static final Comparator<Slot> INTERVAL_ORDER = (a, b) -> {
+        int result = compareStarts(a, b);
+        if (result == 0) {
+            result = Long.compare(a.endMinute(), b.endMinute());
+        }
+        if (result == 0) {
+            result = a.end().compareTo(b.end());
+        }
+        return result != 0 ? result : Integer.compare(a.id(), b.id());
+    };
+
+    private Part tasks = new Part();
+    private Part subtasks = new Part();
+
+    void add(Task task) {
+        if (task.getStartTime() == null) {
+            return;
+        }
+        remove(task.getId());
+        (task instanceof Subtask ? subtasks : tasks).add(Slot.of(task));
+    }
+
+    /**
+     * Replaces the contents with {@code scheduled} in O(n log n) sorting plus a linear tree build,
+     * instead of n separate insertions. Overlap is not checked.
+     */
+    void rebuild(Collection<? extends Task> scheduled) {
+        List<Slot> taskSlots = new ArrayList<>();
+        List<Slot> subtaskSlots = new ArrayList<>();
+        for (Task task : scheduled) {
+            if (task.getStartTime() != null) {
+                (task instanceof Subtask ? subtaskSlots : taskSlots).add(Slot.of(task));
+            }
+        }
+        rebuildSlots(taskSlots, subtaskSlots);
+    }
+
+    /**
+     * Same as {@link #rebuild}, for callers that hold only the slots and not the tasks.
+     */
+    void rebuildSlots(List<Slot> taskSlots, List<Slot> subtaskSlots) {
+        tasks = new Part(taskSlots);
+        subtasks = new Part(subtaskSlots);
+    }
+
+    void remove(int id) {
+        if (!tasks.remove(id)) {
+            subtasks.remove(id);
+        }
+    }
+
+    /**
+     * Drops every slot of the given type; epics are never indexed.
+     */
+    void clear(TaskType type) {
+        switch (type) {
+            case TASK -> tasks = new Part();
+            case SUBTASK -> subtasks = new Part();
+            case EPIC -> {
+            }
+        }
+    }
+
+    boolean overlaps(Task candidate) {
+        LocalDateTime start = candidate.getStartTime();
+        LocalDateTime end = candidate.getEndTime();
+        if (start == null || end == null) {
+            return false;
+        }
+        int ignoredId = candidate.getId();
+        return overlaps(start, end, id -> id == ignoredId);
+    }
+
+    /**
+     * Checks {@code [start, end)} against every interval whose id is not {@code ignored}.
+     * Each ignored neighbour costs one more lookup.
+     */
+    boolean overlaps(LocalDateTime start, LocalDateTime end, IntPredicate ignored) {
+        return tasks.overlaps(start, end, ignored) || subtasks.overlaps(start, end, ignored);
+    }
+
+    /**
+     * Returns up to {@code limit} start times, one per gap, at which an interval of
+     * {@code duration} fits between {@code notBefore} and {@code notAfter} ({@code null} means unbounded).
+     * Every step is a single neighbour lookup, so the cost is O(log n) per interval skipped.
+     */
+    List<LocalDateTime> findFreeSlots(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter, int limit) {
+        List<LocalDateTime> result = new ArrayList<>();
+        LocalDateTime time = notBefore;
+        Slot previous = nearer(tasks.intervals.lower(probe(time)), subtasks.intervals.lower(probe(time)), false);
+        if (previous != null && previous.end().isAfter(time)) {
+            time = previous.end();
+        }
+        Slot next = nearer(tasks.intervals.ceiling(probe(time)), subtasks.intervals.ceiling(probe(time)), true);
+        while (result.size() < limit) {
+            LocalDateTime end = time.plus(duration);
+            if (notAfter != null && end.isAfter(notAfter)) {
+                break;
+            }
+            if (next == null || !next.start().isBefore(end)) {
+                result.add(time);
+                if (next == null) {
+                    break;
+                }
+                time = next.end();
+            } else if (next.end().isAfter(time)) {
+                time = next.end();
+            }
+            next = nearer(tasks.intervals.higher(next), subtasks.intervals.higher(next), true);
+        }
+        return result;
+    }
+
+    void forEachOrdered(IntConsumer action) {
+        Iterator<Slot> ordered = new MergingIterator(tasks.byStart.iterator(), subtasks.byStart.iterator());
+        while (ordered.hasNext()) {
+            action.accept(ordered.next().id());
+        }
+    }
+
+    /**
+     * Returns a live view of slots starting in {@code [from, to)}; {@code null} leaves the bound open.
+     * Throws {@link IllegalArgumentException} if {@code from} is after {@code to}.
+     */
+    Iterable<Slot> startingBetween(LocalDateTime from, LocalDateTime to) {
+        checkRange(from, to);
+        NavigableSet<Slot> taskView = tasks.startingBetween(from, to);
+        NavigableSet<Slot> subtaskView = subtasks.startingBetween(from, to);
+        return () -> new MergingIterator(taskView.iterator(), subtaskView.iterator());
+    }
+
+    static void checkRange(LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Начало интервала позже конца: " + from + " > " + to);
+        }
+    }
+
+    int size() {
+        return tasks.slots.size() + subtasks.slots.size();
+    }
+
+    private static int compareStarts(Slot a, Slot b) {
+        int result = Long.compare(a.startMinute(), b.startMinute());
+        return result != 0 ? result : a.start().compareTo(b.start());
+    }
+
+    // of two neighbours from different parts, the earlier one when looking forward and the later one otherwise
+    private static Slot nearer(Slot first, Slot second, boolean forward) {
+        if (first == null || second == null) {
+            return first != null ? first : second;
+        }
+        boolean firstIsEarlier = INTERVAL_ORDER.compare(first, second) < 0;
+        return firstIsEarlier == forward ? first : second;
+    }
+
+    /**
+     * Slots of one task type.
+     */
+    private static final class Part {
+        private final IntMap<Slot> slots = new OpenAddressingIntMap<>();
+        private final TreeSet<Slot> byStart;
+        private final TreeSet<Slot> intervals;
+
+        Part() {
+            byStart = new TreeSet<>(START_ORDER);
+            intervals = new TreeSet<>(INTERVAL_ORDER);
+        }
+
+        /**
+         * Sorts the slots once; {@link TreeSet#TreeSet(SortedSet)} then builds each tree in linear time.
+         */
+        Part(List<Slot> all) {
+            for (Slot slot : all) {
+                slots.put(slot.id(), slot);
+            }
+            Slot[] ordered = all.toArray(Slot[]::new);
+            Arrays.parallelSort(ordered, START_ORDER);
+            byStart = new TreeSet<>(new SortedSlots(ordered, 0, ordered.length, START_ORDER));
+
+            Slot[] timed = all.stream().filter(slot -> slot.end() != null).toArray(Slot[]::new);
+            Arrays.parallelSort(timed, INTERVAL_ORDER);
+            intervals = new TreeSet<>(new SortedSlots(timed, 0, timed.length, INTERVAL_ORDER));
+        }
+
+        void add(Slot slot) {
+            slots.put(slot.id(), slot);
+            byStart.add(slot);
+            if (slot.end() != null) {
+                intervals.add(slot);
+            }
+        }
+
+        boolean remove(int id) {
+            Slot slot = slots.remove(id);
+            if (slot == null) {
+                return false;
+            }
+            byStart.remove(slot);
+            if (slot.end() != null) {
+                intervals.remove(slot);
+            }
+            return true;
+        }
+
+        boolean overlaps(LocalDateTime start, LocalDateTime end, IntPredicate ignored) {
+            Slot last = intervals.lower(probe(end));
+            while (last != null && ignored.test(last.id())) {
+                last = intervals.lower(last);
+            }
+            return last != null && start.isBefore(last.end());
+        }
+
+        NavigableSet<Slot> startingBetween(LocalDateTime from, LocalDateTime to) {
+            if (from == null && to == null) {
+                return Collections.unmodifiableNavigableSet(byStart);
+            }
+            NavigableSet<Slot> view;
+            if (from == null) {
+                view = byStart.headSet(probe(to), false);
+            } else if (to == null) {
+                view = byStart.tailSet(probe(from), true);
+            } else {
+                view = byStart.subSet(probe(from), true, probe(to), false);
+            }
+            return Collections.unmodifiableNavigableSet(view);
+        }
+    }
+
+    /**
+     * Merges two iterators that are each in start order.
+     */
+    private static final class MergingIterator implements Iterator<Slot> {
+        private final Iterator<Slot> left;
+        private final Iterator<Slot> right;
+        private Slot nextLeft;
+        private Slot nextRight;
+
+        MergingIterator(Iterator<Slot> left, Iterator<Slot> right) {
+            this.left = left;
+            this.right = right;
+            nextLeft = left.hasNext() ? left.next() : null;
+            nextRight = right.hasNext() ? right.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextLeft != null || nextRight != null;
+        }
+
+        @Override
+        public Slot next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Slot result;
+            if (nextRight == null || (nextLeft != null && START_ORDER.compare(nextLeft, nextRight) < 0)) {
+                result = nextLeft;
+                nextLeft = left.hasNext() ? left.next() : null;
+            } else {
+                result = nextRight;
+                nextRight = right.hasNext() ? right.next() : null;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Read-only sorted set over a range of an array already sorted by {@code order}.
+     */
+    private static final class SortedSlots extends AbstractSet<Slot> implements SortedSet<Slot> {
+        private final Slot[] slots;
+        private final int from;
+        private final int to;
+        private final Comparator<Slot> order;
+
+        SortedSlots(Slot[] slots, int from, int to, Comparator<Slot> order) {
+            this.slots = slots;
+            this.from = from;
+            this.to = to;
+            this.order = order;
+        }
+
+        @Override
+        public Iterator<Slot> iterator() {
+            return Arrays.asList(slots).subList(from, to).iterator();
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Slot slot)) {
+                return false;
+            }
+            int index = lowerBound(slot);
+            return index < to && order.compare(slots[index], slot) == 0;
+        }
+
+        @Override
+        public Comparator<? super Slot> comparator() {
+            return order;
+        }
+
+        @Override
+        public Slot first() {
+            if (from == to) {
+                throw new NoSuchElementException();
+            }
+            return slots[from];
+        }
+
+        @Override
+        public Slot last() {
+            if (from == to) {
+                throw new NoSuchElementException();
+            }
+            return slots[to - 1];
+        }
+
+        @Override
+        public SortedSet<Slot> subSet(Slot fromElement, Slot toElement) {
+            if (order.compare(fromElement, toElement) > 0) {
+                throw new IllegalArgumentException("Начало диапазона позже конца");
+            }
+            return new SortedSlots(slots, lowerBound(fromElement), lowerBound(toElement), order);
+        }
+
+        @Override
+        public SortedSet<Slot> headSet(Slot toElement) {
+            return new SortedSlots(slots, from, lowerBound(toElement), order);
+        }
+
+        @Override
+        public SortedSet<Slot> tailSet(Slot fromElement) {
+            return new SortedSlots(slots, lowerBound(fromElement), to, order);
+        }
+
+        // index of the first slot not less than key, within this range
+        private int lowerBound(Slot key) {
+            int low = from;
+            int high = to;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (order.compare(slots[middle], key) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static Slot probe(LocalDateTime time) {
+        return new Slot(Integer.MIN_VALUE, time, time);
+    }
+}
@@ -3,12 +3,15 @@ package ru.yandex.javacourse.schedule.tasks;
 import static ru.yandex.javacourse.schedule.tasks.TaskStatus.NEW;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.function.IntConsumer;
+
+import ru.yandex.javacourse.schedule.util.PersistentIntSet;
 
 public class Epic extends Task {
     private LocalDateTime endTime;
-    protected ArrayList<Integer> subtaskIds = new ArrayList<>();
+    // persistent, so copies and snapshots share it and a change replaces only the path to one id
+    private PersistentIntSet subtaskIds = PersistentIntSet.empty();
 
     public Epic(int id, String name, String description) {
         super(id, name, description, NEW);
@@ -18,20 +21,41 @@ public class Epic extends Task {
         super(name, description, NEW);
     }
 
+    protected Epic(Epic other) {
+        super(other);
+        this.endTime = other.endTime;
+        this.subtaskIds = other.subtaskIds;
+    }
+
+    @Override
+    public TaskType getType() {
+        return TaskType.EPIC;
+    }
+
     public void addSubtaskId(int id) {
-        subtaskIds.add(id);
+        ensureMutable();
+        subtaskIds = subtaskIds.add(id);
     }
 
+    /**
+     * Returns a copy of the subtask ids; use {@link #forEachSubtaskId} to avoid boxing.
+     */
     public List<Integer> getSubtaskIds() {
-        return subtaskIds;
+        return subtaskIds.toList();
+    }
+
+    public void forEachSubtaskId(IntConsumer action) {
+        subtaskIds.forEach(action);
     }
 
     public void cleanSubtaskIds() {
-        subtaskIds.clear();
+        ensureMutable();
+        subtaskIds = PersistentIntSet.empty();
     }
 
     public void removeSubtask(int id) {
-        subtaskIds.remove(Integer.valueOf(id));
+        ensureMutable();
+        subtaskIds = subtaskIds.remove(id);
     }
 
     @Override
@@ -40,9 +64,35 @@ public class Epic extends Task {
     }
 
     public void setEndTime(LocalDateTime endTime) {
+        ensureMutable();
         this.endTime = endTime;
     }
 
+    @Override
+    public long getEndMinute() {
+        return epochMinute(endTime);
+    }
+
+    @Override
+    public Epic snapshot() {
+        return (Epic) super.snapshot();
+    }
+
+    @Override
+    public Epic copy() {
+        return new Epic(this);
+    }
+
+    @Override
+    public Epic withName(String name) {
+        return (Epic) super.withName(name);
+    }
+
+    @Override
+    public Epic withDescription(String description) {
+        return (Epic) super.withDescription(description);
+    }
+
     @Override
     public String toString() {
         return "Epic{" +
@@ -22,10 +22,50 @@ public class Subtask extends Task {
         this.epicId = epicId;
     }
 
+    protected Subtask(Subtask other) {
+        super(other);
+        this.epicId = other.epicId;
+    }
+
+	@Override
+	public TaskType getType() {
+		return TaskType.SUBTASK;
+	}
+
 	public int getEpicId() {
 		return epicId;
 	}
 
+    @Override
+    public Subtask snapshot() {
+        return (Subtask) super.snapshot();
+    }
+
+    @Override
+    public Subtask copy() {
+        return new Subtask(this);
+    }
+
+    @Override
+    public Subtask withName(String name) {
+        return (Subtask) super.withName(name);
+    }
+
+    @Override
+    public Subtask withDescription(String description) {
+        return (Subtask) super.withDescription(description);
+    }
+
+    @Override
+    public Subtask withStatus(TaskStatus status) {
+        return (Subtask) super.withStatus(status);
+    }
+
+    @Override
+    public Subtask withTime(Duration duration, LocalDateTime startTime) {
+        return (Subtask) super.withTime(duration, startTime);
+    }
+
 	@Override
 	public String toString() {
 		return "Subtask{" +
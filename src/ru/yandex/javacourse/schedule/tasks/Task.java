@@ -2,9 +2,15 @@ package ru.yandex.javacourse.schedule.tasks;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Objects;
 
 public class Task {
+    /**
+     * Minute key of a task without the corresponding time.
+     */
+    public static final long NO_TIME = Long.MIN_VALUE;
+
     protected int id;
     protected String name;
     protected TaskStatus status;
@@ -12,6 +18,12 @@ public class Task {
     protected Duration duration;
     protected LocalDateTime startTime;
 
+    // derived from startTime and duration whenever either is set
+    private LocalDateTime endTime;
+    private long startMinute = NO_TIME;
+    private long endMinute = NO_TIME;
+    private boolean frozen;
+
     public Task(int id, String name, String description, TaskStatus status) {
         this.id = id;
         this.name = name;
@@ -31,6 +43,26 @@ public class Task {
         this.status = status;
         this.duration = duration;
         this.startTime = startTime;
+        updateTime();
+    }
+
+    /**
+     * Copies every field of {@code other}; the copy is mutable.
+     */
+    protected Task(Task other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.description = other.description;
+        this.status = other.status;
+        this.duration = other.duration;
+        this.startTime = other.startTime;
+        this.endTime = other.endTime;
+        this.startMinute = other.startMinute;
+        this.endMinute = other.endMinute;
+    }
+
+    public TaskType getType() {
+        return TaskType.TASK;
     }
 
     public int getId() {
@@ -38,6 +70,7 @@ public class Task {
     }
 
     public void setId(int id) {
+        ensureMutable();
         this.id = id;
     }
 
@@ -46,6 +79,7 @@ public class Task {
     }
 
     public void setName(String name) {
+        ensureMutable();
         this.name = name;
     }
 
@@ -54,6 +88,7 @@ public class Task {
     }
 
     public void setStatus(TaskStatus status) {
+        ensureMutable();
         this.status = status;
     }
 
@@ -62,6 +97,7 @@ public class Task {
     }
 
     public void setDescription(String description) {
+        ensureMutable();
         this.description = description;
     }
 
@@ -70,7 +106,9 @@ public class Task {
     }
 
     public void setDuration(Duration duration) {
+        ensureMutable();
         this.duration = duration;
+        updateTime();
     }
 
     public LocalDateTime getStartTime() {
@@ -78,14 +116,98 @@ public class Task {
     }
 
     public void setStartTime(LocalDateTime startTime) {
+        ensureMutable();
         this.startTime = startTime;
+        updateTime();
     }
 
+    /**
+     * Returns the end computed when the start or duration was last set, so repeated calls do not allocate.
+     */
     public LocalDateTime getEndTime() {
-        if (startTime == null || duration == null) {
-            return null;
+        return endTime;
+    }
+
+    /**
+     * Start time in whole minutes since 1970-01-01T00:00, rounded down, or {@link #NO_TIME}.
+     * Orders tasks as {@link #getStartTime()} does, except that times within one minute share a key
+     * and need the exact comparison.
+     */
+    public long getStartMinute() {
+        return startMinute;
+    }
+
+    /**
+     * End time as in {@link #getStartMinute()}.
+     */
+    public long getEndMinute() {
+        return endMinute;
+    }
+
+    public static long epochMinute(LocalDateTime time) {
+        return time == null ? NO_TIME : Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Returns an immutable copy, or this task if it is immutable already. Setters of the copy throw
+     * {@link UnsupportedOperationException}, so it can be shared without copying again.
+     */
+    public Task snapshot() {
+        return frozen ? this : copy().freeze();
+    }
+
+    /**
+     * Returns a mutable copy, also of an immutable task.
+     */
+    public Task copy() {
+        return new Task(this);
+    }
+
+    public Task withName(String name) {
+        Task copy = copy();
+        copy.name = name;
+        return copy.freeze();
+    }
+
+    public Task withDescription(String description) {
+        Task copy = copy();
+        copy.description = description;
+        return copy.freeze();
+    }
+
+    public Task withStatus(TaskStatus status) {
+        Task copy = copy();
+        copy.status = status;
+        return copy.freeze();
+    }
+
+    public Task withTime(Duration duration, LocalDateTime startTime) {
+        Task copy = copy();
+        copy.duration = duration;
+        copy.startTime = startTime;
+        copy.updateTime();
+        return copy.freeze();
+    }
+
+    protected void ensureMutable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Задача " + id + " неизменяема");
         }
-        return startTime.plus(duration);
+    }
+
+    private Task freeze() {
+        frozen = true;
+        return this;
+    }
+
+    private void updateTime() {
+        endTime = startTime == null || duration == null ? null : startTime.plus(duration);
+        startMinute = epochMinute(startTime);
+        endMinute = epochMinute(endTime);
     }
 
     @Override
@@ -0,0 +1,61 @@
+package ru.yandex.javacourse.schedule.util;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * {@link IntMap} over a {@link ConcurrentHashMap}.
+ */
+public final class ConcurrentIntMap<V> implements IntMap<V> {
+    private final Map<Integer, V> map = new ConcurrentHashMap<>();
+
+    @Override
+    public V get(int key) {
+        return map.get(key);
+    }
+
+    @Override
+    public V put(int key, V value) {
+        return map.put(key, Objects.requireNonNull(value));
+    }
+
+    @Override
+    public V remove(int key) {
+        return map.remove(key);
+    }
+
+    @Override
+    public boolean containsKey(int key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+    }
+
+    @Override
+    public void forEachKey(IntConsumer action) {
+        for (Integer key : map.keySet()) {
+            action.accept(key);
+        }
+    }
+
+    @Override
+    public Collection<V> values() {
+        return map.values();
+    }
+}
@@ -0,0 +1,11 @@
+package ru.yandex.javacourse.schedule.util;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Primitive {@code int} values that can be walked without boxing, e.g. {@code map::forEachKey}.
+ */
+@FunctionalInterface
+public interface IntIterable {
+    void forEach(IntConsumer action);
+}
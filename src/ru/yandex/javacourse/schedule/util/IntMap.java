@@ -0,0 +1,29 @@
+package ru.yandex.javacourse.schedule.util;
+
+import java.util.Collection;
+import java.util.function.IntConsumer;
+
+/**
+ * Map with primitive {@code int} keys.
+ * <p>
+ * Values must not be {@code null}.
+ */
+public interface IntMap<V> {
+    V get(int key);
+
+    V put(int key, V value);
+
+    V remove(int key);
+
+    boolean containsKey(int key);
+
+    int size();
+
+    boolean isEmpty();
+
+    void clear();
+
+    void forEachKey(IntConsumer action);
+
+    Collection<V> values();
+}
@@ -0,0 +1,143 @@
+package ru.yandex.javacourse.schedule.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Set of primitive {@code int} values with O(1) add, remove and contains.
+ * <p>
+ * Elements live in a dense array in insertion order; an open-addressing table maps each element
+ * to its position. Removal moves the last element into the freed position, so iteration order
+ * is insertion order only until the first removal.
+ */
+public final class IntSet implements IntIterable {
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] elements = new int[MIN_CAPACITY / 2];
+    private int size;
+    // position + 1 of the element in the bucket, 0 for an empty bucket
+    private int[] buckets = new int[MIN_CAPACITY];
+
+    public boolean add(int value) {
+        if (bucketOf(value) >= 0) {
+            return false;
+        }
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size << 1);
+        }
+        elements[size] = value;
+        size++;
+        if (size > buckets.length - (buckets.length >>> 2)) {
+            rehash(buckets.length << 1);
+        } else {
+            buckets[freeBucket(value)] = size;
+        }
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int bucket = bucketOf(value);
+        if (bucket < 0) {
+            return false;
+        }
+        int position = buckets[bucket] - 1;
+        shiftBack(bucket);
+        int last = size - 1;
+        if (position != last) {
+            int moved = elements[last];
+            elements[position] = moved;
+            buckets[bucketOf(moved)] = position + 1;
+        }
+        size--;
+        return true;
+    }
+
+    public boolean contains(int value) {
+        return bucketOf(value) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+        Arrays.fill(buckets, 0);
+    }
+
+    @Override
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(elements[i]);
+        }
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    public List<Integer> toList() {
+        List<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(elements[i]);
+        }
+        return list;
+    }
+
+    @Override
+    public String toString() {
+        return toList().toString();
+    }
+
+    private int bucketOf(int value) {
+        int mask = buckets.length - 1;
+        int index = OpenAddressingIntMap.hash(value) & mask;
+        while (buckets[index] != 0) {
+            if (elements[buckets[index] - 1] == value) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int freeBucket(int value) {
+        int mask = buckets.length - 1;
+        int index = OpenAddressingIntMap.hash(value) & mask;
+        while (buckets[index] != 0) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void shiftBack(int gap) {
+        int mask = buckets.length - 1;
+        int index = gap;
+        while (true) {
+            index = (index + 1) & mask;
+            if (buckets[index] == 0) {
+                break;
+            }
+            int home = OpenAddressingIntMap.hash(elements[buckets[index] - 1]) & mask;
+            boolean movable = index > gap ? (home <= gap || home > index) : (home <= gap && home > index);
+            if (movable) {
+                buckets[gap] = buckets[index];
+                gap = index;
+            }
+        }
+        buckets[gap] = 0;
+    }
+
+    private void rehash(int capacity) {
+        buckets = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            buckets[freeBucket(elements[i])] = i + 1;
+        }
+    }
+}
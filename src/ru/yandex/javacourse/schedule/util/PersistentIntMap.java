@@ -0,0 +1,212 @@
+package ru.yandex.javacourse.schedule.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable map with primitive int keys: {@link #put} and {@link #remove} return a new map and leave this one
+ * unchanged.
+ * <p>
+ * A trie of 32-way branches indexed by five bits of the key at a time, highest bits first; an entry sits in
+ * the first branch where its key differs from the others. A change copies only the branches on the path to
+ * its key, at most seven, and shares the rest with the previous map. Iteration is in ascending order of keys
+ * taken as unsigned.
+ */
+public final class PersistentIntMap<V> {
+    private static final int BITS = 5;
+    private static final int TOP_SHIFT = 30;
+    private static final PersistentIntMap<?> EMPTY = new PersistentIntMap<>(null, 0);
+
+    // null, Entry or Branch
+    private final Object root;
+    private final int size;
+
+    private PersistentIntMap(Object root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentIntMap<V> empty() {
+        return (PersistentIntMap<V>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        Object node = root;
+        int shift = TOP_SHIFT;
+        while (node instanceof Branch branch) {
+            int bit = bit(key, shift);
+            if ((branch.bitmap & bit) == 0) {
+                return null;
+            }
+            node = branch.slots[branch.index(bit)];
+            shift -= BITS;
+        }
+        return node instanceof Entry entry && entry.key == key ? (V) entry.value : null;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    public PersistentIntMap<V> put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Значение не может быть null");
+        }
+        Object newRoot = put(root, TOP_SHIFT, key, value);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentIntMap<>(newRoot, containsKey(key) ? size : size + 1);
+    }
+
+    public PersistentIntMap<V> remove(int key) {
+        Object newRoot = remove(root, TOP_SHIFT, key);
+        if (newRoot == root) {
+            return this;
+        }
+        return newRoot == null ? empty() : new PersistentIntMap<>(newRoot, size - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(Consumer<? super V> action) {
+        forEach(root, action);
+    }
+
+    public void forEachKey(IntConsumer action) {
+        forEachKey(root, action);
+    }
+
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size);
+        forEach(values::add);
+        return values;
+    }
+
+    private static Object put(Object node, int shift, int key, Object value) {
+        if (node == null) {
+            return new Entry(key, value);
+        }
+        if (node instanceof Entry entry) {
+            if (entry.key != key) {
+                return join(entry, new Entry(key, value), shift);
+            }
+            return entry.value == value ? entry : new Entry(key, value);
+        }
+        Branch branch = (Branch) node;
+        int bit = bit(key, shift);
+        int index = branch.index(bit);
+        if ((branch.bitmap & bit) == 0) {
+            Object[] slots = new Object[branch.slots.length + 1];
+            System.arraycopy(branch.slots, 0, slots, 0, index);
+            slots[index] = new Entry(key, value);
+            System.arraycopy(branch.slots, index, slots, index + 1, branch.slots.length - index);
+            return new Branch(branch.bitmap | bit, slots);
+        }
+        Object child = branch.slots[index];
+        Object newChild = put(child, shift - BITS, key, value);
+        return newChild == child ? branch : branch.with(index, newChild);
+    }
+
+    private static Object remove(Object node, int shift, int key) {
+        if (node == null) {
+            return null;
+        }
+        if (node instanceof Entry entry) {
+            return entry.key == key ? null : entry;
+        }
+        Branch branch = (Branch) node;
+        int bit = bit(key, shift);
+        if ((branch.bitmap & bit) == 0) {
+            return branch;
+        }
+        int index = branch.index(bit);
+        Object child = branch.slots[index];
+        Object newChild = remove(child, shift - BITS, key);
+        if (newChild == child) {
+            return branch;
+        }
+        Branch result;
+        if (newChild == null) {
+            if (branch.slots.length == 1) {
+                return null;
+            }
+            Object[] slots = new Object[branch.slots.length - 1];
+            System.arraycopy(branch.slots, 0, slots, 0, index);
+            System.arraycopy(branch.slots, index + 1, slots, index, slots.length - index);
+            result = new Branch(branch.bitmap & ~bit, slots);
+        } else {
+            result = branch.with(index, newChild);
+        }
+        // a lone entry moves up, so entries always sit where their key first differs
+        return result.slots.length == 1 && result.slots[0] instanceof Entry ? result.slots[0] : result;
+    }
+
+    private static Branch join(Entry a, Entry b, int shift) {
+        int bitA = bit(a.key, shift);
+        int bitB = bit(b.key, shift);
+        if (bitA == bitB) {
+            return new Branch(bitA, new Object[] {join(a, b, shift - BITS)});
+        }
+        Object[] slots = Integer.compareUnsigned(bitA, bitB) < 0 ? new Object[] {a, b} : new Object[] {b, a};
+        return new Branch(bitA | bitB, slots);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void forEach(Object node, Consumer<? super V> action) {
+        if (node instanceof Entry entry) {
+            action.accept((V) entry.value);
+        } else if (node instanceof Branch branch) {
+            for (Object slot : branch.slots) {
+                forEach(slot, action);
+            }
+        }
+    }
+
+    private static void forEachKey(Object node, IntConsumer action) {
+        if (node instanceof Entry entry) {
+            action.accept(entry.key);
+        } else if (node instanceof Branch branch) {
+            for (Object slot : branch.slots) {
+                forEachKey(slot, action);
+            }
+        }
+    }
+
+    private static int bit(int key, int shift) {
+        return 1 << ((key >>> shift) & 31);
+    }
+
+    private record Entry(int key, Object value) {
+    }
+
+    private static final class Branch {
+        final int bitmap;
+        final Object[] slots;
+
+        Branch(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        Branch with(int index, Object slot) {
+            Object[] copy = slots.clone();
+            copy[index] = slot;
+            return new Branch(bitmap, copy);
+        }
+    }
+}
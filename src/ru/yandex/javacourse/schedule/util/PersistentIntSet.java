@@ -0,0 +1,65 @@
+package ru.yandex.javacourse.schedule.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable set of primitive {@code int} values on top of {@link PersistentIntMap}: {@link #add} and
+ * {@link #remove} return a new set in O(log n) and share everything else with this one. Iteration is in
+ * ascending order of values taken as unsigned.
+ */
+public final class PersistentIntSet implements IntIterable {
+    private static final PersistentIntSet EMPTY = new PersistentIntSet(PersistentIntMap.empty());
+
+    private final PersistentIntMap<Boolean> map;
+
+    private PersistentIntSet(PersistentIntMap<Boolean> map) {
+        this.map = map;
+    }
+
+    public static PersistentIntSet empty() {
+        return EMPTY;
+    }
+
+    public PersistentIntSet add(int value) {
+        PersistentIntMap<Boolean> added = map.put(value, Boolean.TRUE);
+        return added == map ? this : new PersistentIntSet(added);
+    }
+
+    public PersistentIntSet remove(int value) {
+        PersistentIntMap<Boolean> removed = map.remove(value);
+        if (removed == map) {
+            return this;
+        }
+        return removed.isEmpty() ? EMPTY : new PersistentIntSet(removed);
+    }
+
+    public boolean contains(int value) {
+        return map.containsKey(value);
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public void forEach(IntConsumer action) {
+        map.forEachKey(action);
+    }
+
+    public List<Integer> toList() {
+        List<Integer> list = new ArrayList<>(size());
+        forEach(list::add);
+        return list;
+    }
+
+    @Override
+    public String toString() {
+        return toList().toString();
+    }
+}
@@ -0,0 +1,150 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.javacourse.schedule.tasks.Epic;
+import ru.yandex.javacourse.schedule.tasks.Subtask;
+import ru.yandex.javacourse.schedule.tasks.Task;
+import ru.yandex.javacourse.schedule.tasks.TaskStatus;
+import ru.yandex.javacourse.schedule.tasks.TaskType;
+import ru.yandex.javacourse.schedule.util.IntSet;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ArrayHistoryManagerTest {
+
+    @Test
+    void repeatedViewMovesTaskToTheEnd() {
+        HistoryManager history = new ArrayHistoryManager();
+        Task t1 = task(1);
+        Task t2 = task(2);
+        Task t3 = task(3);
+
+        history.add(t1);
+        history.add(t2);
+        history.add(t3);
+        history.add(t1);
+        history.add(null);
+
+        assertEquals(List.of(t2, t3, t1), history.getHistory());
+    }
+
+    @Test
+    void removeFromHistoryBeginningMiddleEnd() {
+        HistoryManager history = new ArrayHistoryManager();
+        Task t1 = task(1);
+        Task t2 = task(2);
+        Task t3 = task(3);
+        history.add(t1);
+        history.add(t2);
+        history.add(t3);
+
+        history.remove(2);
+        assertEquals(List.of(t1, t3), history.getHistory());
+        history.remove(3);
+        assertEquals(List.of(t1), history.getHistory());
+        history.remove(1);
+        history.remove(1);
+        assertTrue(history.getHistory().isEmpty());
+
+        history.add(t3);
+        assertEquals(List.of(t3), history.getHistory(), "a freed slot is reused");
+    }
+
+    @Test
+    void leastRecentlyViewedIsEvictedPastCapacity() {
+        ArrayHistoryManager history = new ArrayHistoryManager(2);
+        Task t1 = task(1);
+        Task t2 = task(2);
+        Task t3 = task(3);
+
+        history.add(t1);
+        history.add(t2);
+        history.add(t1);
+        history.add(t3);
+
+        assertEquals(List.of(t1, t3), history.getHistory());
+        assertEquals(2, history.size());
+        assertThrows(IllegalArgumentException.class, () -> new ArrayHistoryManager(0));
+    }
+
+    @Test
+    void resolvedHistoryKeepsOnlyIds() {
+        Map<Integer, Task> stored = new HashMap<>();
+        HistoryManager history = new ArrayHistoryManager(10, stored::get);
+        stored.put(1, task(1));
+        stored.put(2, task(2));
+        history.add(stored.get(1));
+        history.add(stored.get(2));
+
+        Task replacement = task(1);
+        stored.put(1, replacement);
+        stored.remove(2);
+
+        assertEquals(List.of(replacement), history.getHistory());
+        assertSame(replacement, history.getHistory().getFirst());
+    }
+
+    @Test
+    void removeAllByIdsAndByType() {
+        HistoryManager history = new ArrayHistoryManager();
+        Task t1 = task(1);
+        Epic epic = new Epic("E", "desc");
+        epic.setId(2);
+        Subtask s3 = new Subtask("S3", "desc", TaskStatus.NEW, 2);
+        s3.setId(3);
+        Task t4 = task(4);
+        history.add(t1);
+        history.add(epic);
+        history.add(s3);
+        history.add(t4);
+
+        history.removeAll(TaskType.TASK);
+        assertEquals(List.of(epic, s3), history.getHistory());
+
+        IntSet ids = new IntSet();
+        ids.add(3);
+        ids.add(100);
+        history.removeAll(ids);
+        assertEquals(List.of(epic), history.getHistory());
+    }
+
+    @Test
+    void matchesNodeBasedHistoryOnRandomViews() {
+        Random random = new Random(18);
+        HistoryManager expected = new InMemoryHistoryManager(100);
+        HistoryManager actual = new ArrayHistoryManager(100);
+        Task[] tasks = new Task[500];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = task(i);
+        }
+
+        for (int i = 0; i < 20_000; i++) {
+            int id = random.nextInt(tasks.length);
+            if (random.nextInt(4) == 0) {
+                expected.remove(id);
+                actual.remove(id);
+            } else {
+                expected.add(tasks[id]);
+                actual.add(tasks[id]);
+            }
+            if (i % 1000 == 0) {
+                assertEquals(expected.getHistory(), actual.getHistory());
+            }
+        }
+        assertEquals(expected.getHistory(), actual.getHistory());
+    }
+
+    private static Task task(int id) {
+        Task task = new Task("T" + id, "desc", TaskStatus.NEW);
+        task.setId(id);
+        return task;
+    }
+}
@@ -0,0 +1,127 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.javacourse.schedule.tasks.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinarySnapshotTest {
+
+    @Test
+    void testRowsSurviveRoundTrip() throws IOException {
+        Task task = new Task("Задача", "описание", TaskStatus.DONE, Duration.ofMinutes(90),
+                LocalDateTime.of(2025, 3, 1, 9, 30));
+        task.setId(1);
+        Epic epic = new Epic("E", null);
+        epic.setStatus(TaskStatus.IN_PROGRESS);
+        epic.setId(300);
+        Subtask subtask = new Subtask("S", "", TaskStatus.NEW, 300, null, null);
+        subtask.setId(70000);
+
+        for (boolean dictionary : new boolean[]{false, true}) {
+            List<Task> decoded = decode(BinarySnapshot.encode(List.of(task, epic, subtask), dictionary));
+
+            assertEquals(3, decoded.size());
+            Task t = decoded.get(0);
+            assertEquals(1, t.getId());
+            assertEquals("Задача", t.getName());
+            assertEquals("описание", t.getDescription());
+            assertEquals(TaskStatus.DONE, t.getStatus());
+            assertEquals(Duration.ofMinutes(90), t.getDuration());
+            assertEquals(task.getStartTime(), t.getStartTime());
+
+            Epic e = assertInstanceOf(Epic.class, decoded.get(1));
+            assertEquals(300, e.getId());
+            assertNull(e.getDescription());
+            assertEquals(TaskStatus.IN_PROGRESS, e.getStatus());
+
+            Subtask s = assertInstanceOf(Subtask.class, decoded.get(2));
+            assertEquals(70000, s.getId());
+            assertEquals(300, s.getEpicId());
+            assertEquals("", s.getDescription());
+            assertNull(s.getDuration());
+            assertNull(s.getStartTime());
+        }
+    }
+
+    @Test
+    void testStartTimesKeepFullPrecision() throws IOException {
+        LocalDateTime[] times = {
+                LocalDateTime.of(1969, 12, 31, 23, 59),
+                LocalDateTime.of(2025, 1, 1, 10, 0, 15),
+                LocalDateTime.of(2025, 1, 1, 10, 0, 0, 123_456_789)
+        };
+        for (LocalDateTime time : times) {
+            Task task = new Task("T", "D", TaskStatus.NEW, Duration.ofMinutes(1), time);
+            task.setId(1);
+            assertEquals(time, decode(BinarySnapshot.encode(List.of(task), false)).getFirst().getStartTime());
+        }
+    }
+
+    @Test
+    void testDictionaryStoresRepeatedStringsOnce() {
+        List<Task> rows = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Task task = new Task("Повторяющееся имя задачи", "Повторяющееся описание", TaskStatus.NEW);
+            task.setId(i + 1);
+            rows.add(task);
+        }
+        assertTrue(BinarySnapshot.encode(rows, true).length * 4 < BinarySnapshot.encode(rows, false).length);
+    }
+
+    @Test
+    void testNegativeDurationsSurviveRoundTrip() throws IOException {
+        List<Task> rows = new ArrayList<>();
+        for (long minutes : new long[]{-1, -90, 0, 1}) {
+            Task task = new Task("T", "D", TaskStatus.NEW, Duration.ofMinutes(minutes), null);
+            task.setId(rows.size() + 1);
+            rows.add(task);
+        }
+
+        List<Task> decoded = decode(BinarySnapshot.encode(rows, false));
+
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(rows.get(i).getDuration(), decoded.get(i).getDuration());
+        }
+    }
+
+    @Test
+    void testVersionOneDurationsAreStillRead() throws IOException {
+        byte[] bytes = {'T', 'K', 'B', 'S', 1, 0, 1, (byte) TaskType.TASK.ordinal(), (byte) TaskStatus.NEW.ordinal(),
+                7, 2, 'T', 0, 91, 0};
+
+        Task task = decode(bytes).getFirst();
+
+        assertEquals(7, task.getId());
+        assertEquals("T", task.getName());
+        assertEquals(Duration.ofMinutes(90), task.getDuration());
+        assertNull(task.getStartTime());
+    }
+
+    @Test
+    void testUnknownVersionIsRejected() {
+        byte[] bytes = BinarySnapshot.encode(List.of(), false);
+        bytes[4] = (byte) (BinarySnapshot.VERSION + 1);
+        assertThrows(ManagerSaveException.class, () -> decode(bytes));
+    }
+
+    @Test
+    void testTruncatedSnapshotIsRejected() {
+        Task task = new Task("T", "D", TaskStatus.NEW);
+        task.setId(1);
+        byte[] bytes = BinarySnapshot.encode(List.of(task), false);
+        assertThrows(ManagerSaveException.class, () -> decode(Arrays.copyOf(bytes, bytes.length - 2)));
+    }
+
+    private static List<Task> decode(byte[] bytes) throws IOException {
+        return BinarySnapshot.decode(new ByteArrayInputStream(bytes));
+    }
+}
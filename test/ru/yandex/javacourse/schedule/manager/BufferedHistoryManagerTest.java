@@ -0,0 +1,120 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.javacourse.schedule.tasks.Task;
+import ru.yandex.javacourse.schedule.tasks.TaskStatus;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BufferedHistoryManagerTest {
+
+    @Test
+    void getHistorySeesBufferedViewsInOrder() {
+        HistoryManager history = new BufferedHistoryManager(new ArrayHistoryManager(), 4);
+        Task t1 = task(1);
+        Task t2 = task(2);
+        Task t3 = task(3);
+
+        history.add(t1);
+        history.add(t2);
+        history.add(t3);
+        history.add(t1);
+
+        assertEquals(List.of(t2, t3, t1), history.getHistory());
+    }
+
+    @Test
+    void removeAppliesPendingViewsFirst() {
+        HistoryManager history = new BufferedHistoryManager(new ArrayHistoryManager(), 1);
+        history.add(task(1));
+        history.add(task(2));
+
+        history.remove(1);
+
+        assertEquals(List.of(2), ids(history.getHistory()));
+        assertThrows(IllegalArgumentException.class,
+                () -> new BufferedHistoryManager(new ArrayHistoryManager(), 0));
+    }
+
+    @Test
+    void moreViewsThanTheBufferHoldsAreKept() {
+        HistoryManager history = new BufferedHistoryManager(new ArrayHistoryManager(), 1);
+        int views = BufferedHistoryManager.BUFFER_SIZE * 5 + 3;
+        for (int id = 0; id < views; id++) {
+            history.add(task(id));
+        }
+
+        List<Integer> ids = ids(history.getHistory());
+        assertEquals(views, ids.size());
+        for (int id = 0; id < views; id++) {
+            assertEquals(id, ids.get(id));
+        }
+    }
+
+    @Test
+    void concurrentViewsAreNeverLost() throws InterruptedException {
+        HistoryManager history = new BufferedHistoryManager(new ArrayHistoryManager(100_000), 4);
+        int threads = 8;
+        int perThread = 2_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    history.add(task(base + i));
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        List<Integer> ids = ids(history.getHistory());
+        assertEquals(threads * perThread, new HashSet<>(ids).size());
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            List<Integer> own = ids.stream().filter(id -> id >= base && id < base + perThread).toList();
+            for (int i = 0; i < perThread; i++) {
+                assertEquals(base + i, own.get(i), "views of one thread keep their order");
+            }
+        }
+    }
+
+    @Test
+    void concurrentManagerRecordsViews() {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager();
+        int first = manager.addNewTask(new Task("A", "d", TaskStatus.NEW));
+        int second = manager.addNewTask(new Task("B", "d", TaskStatus.NEW));
+        manager.getTask(first);
+        manager.getTask(second);
+        manager.deleteTask(first);
+
+        assertEquals(List.of(second), ids(manager.getHistory()));
+    }
+
+    private static List<Integer> ids(List<Task> tasks) {
+        return tasks.stream().map(Task::getId).toList();
+    }
+
+    private static Task task(int id) {
+        Task task = new Task("T" + id, "desc", TaskStatus.NEW);
+        task.setId(id);
+        return task;
+    }
+}
@@ -0,0 +1,174 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.javacourse.schedule.tasks.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 11, 6, 0, 0);
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 2_000;
+
+    @Override
+    protected ConcurrentTaskManager createManager() {
+        return new ConcurrentTaskManager();
+    }
+
+    @Test
+    void invariantsHoldUnderConcurrentMutations() throws Exception {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager(4);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Integer> epicIds = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            final long seed = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                int epicId = manager.addNewEpic(new Epic("E" + seed, "d"));
+                epicIds.add(epicId);
+                List<Integer> own = new ArrayList<>();
+                for (int i = 0; i < OPERATIONS; i++) {
+                    try {
+                        int op = random.nextInt(10);
+                        if (op < 4 || own.isEmpty()) {
+                            Integer id = manager.addNewSubtask(randomSubtask(random, epicId));
+                            own.add(id);
+                        } else if (op < 7) {
+                            Subtask updated = randomSubtask(random, epicId);
+                            updated.setId(own.get(random.nextInt(own.size())));
+                            manager.updateSubtask(updated);
+                        } else if (op < 8) {
+                            manager.deleteSubtask(own.remove(random.nextInt(own.size())));
+                        } else {
+                            manager.addNewTask(new Task("T", "d", TaskStatus.NEW,
+                                    Duration.ofMinutes(1 + random.nextInt(30)), randomStart(random)));
+                        }
+                    } catch (ManagerTimeIntersectionException ignored) {
+                        // the slot was taken, which is an expected outcome
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertNoOverlaps(manager.getPrioritizedTasks());
+        long scheduled = manager.getTasks().stream().filter(t -> t.getStartTime() != null).count()
+                + manager.getSubtasks().stream().filter(t -> t.getStartTime() != null).count();
+        assertEquals(scheduled, manager.getPrioritizedTasks().size(), "index must match the maps");
+
+        Set<Integer> ids = new HashSet<>();
+        manager.getTasks().forEach(t -> assertTrue(ids.add(t.getId())));
+        manager.getSubtasks().forEach(t -> assertTrue(ids.add(t.getId())));
+        manager.getEpics().forEach(t -> assertTrue(ids.add(t.getId())));
+
+        for (int epicId : epicIds) {
+            assertEpicConsistent(manager.getEpic(epicId), manager.getEpicSubtasks(epicId));
+        }
+    }
+
+    private static Subtask randomSubtask(Random random, int epicId) {
+        TaskStatus status = TaskStatus.values()[random.nextInt(TaskStatus.values().length)];
+        if (random.nextInt(5) == 0) {
+            return new Subtask("S", "d", status, epicId);
+        }
+        return new Subtask("S", "d", status, epicId, Duration.ofMinutes(1 + random.nextInt(30)), randomStart(random));
+    }
+
+    @Test
+    void deletedTaskIsNotRestoredByConcurrentUpdate() throws Exception {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager(4);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 500; i++) {
+                LocalDateTime start = BASE.plusHours(i);
+                int id = manager.addNewTask(new Task("T", "d", TaskStatus.NEW, Duration.ofMinutes(30), start));
+                Task update = new Task(id, "T", "d", TaskStatus.DONE);
+                update.setDuration(Duration.ofMinutes(20));
+                update.setStartTime(start);
+                CountDownLatch go = new CountDownLatch(1);
+                Future<?> updater = executor.submit(() -> {
+                    go.await();
+                    manager.updateTask(update);
+                    return null;
+                });
+                Future<?> deleter = executor.submit(() -> {
+                    go.await();
+                    manager.deleteTask(id);
+                    return null;
+                });
+                go.countDown();
+                updater.get();
+                deleter.get();
+
+                assertNull(manager.getTask(id), "task " + id + " stays deleted");
+                assertTrue(manager.getPrioritizedTasks().stream().noneMatch(task -> task.getId() == id));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static LocalDateTime randomStart(Random random) {
+        return BASE.plusMinutes(random.nextInt(20_000));
+    }
+
+    private static void assertNoOverlaps(List<Task> prioritized) {
+        LocalDateTime latestEnd = null;
+        for (Task task : prioritized) {
+            if (task.getDuration() == null) {
+                continue;
+            }
+            if (latestEnd != null) {
+                assertFalse(task.getStartTime().isBefore(latestEnd), "overlap at " + task);
+            }
+            latestEnd = task.getEndTime();
+        }
+    }
+
+    private static void assertEpicConsistent(Epic epic, List<Subtask> subtasks) {
+        assertEquals(subtasks.size(), epic.getSubtaskIds().size());
+        Set<TaskStatus> statuses = new HashSet<>();
+        subtasks.forEach(s -> statuses.add(s.getStatus()));
+        TaskStatus expected = statuses.isEmpty() ? TaskStatus.NEW
+                : statuses.size() == 1 ? statuses.iterator().next() : TaskStatus.IN_PROGRESS;
+        assertEquals(expected, epic.getStatus());
+
+        List<Subtask> timed = subtasks.stream()
+                .filter(s -> s.getStartTime() != null && s.getDuration() != null)
+                .toList();
+        if (timed.isEmpty()) {
+            assertNull(epic.getStartTime());
+            assertNull(epic.getDuration());
+            return;
+        }
+        assertEquals(timed.stream().map(Subtask::getDuration).reduce(Duration::plus).orElseThrow(),
+                epic.getDuration());
+        assertEquals(timed.stream().map(Subtask::getStartTime).min(LocalDateTime::compareTo).orElseThrow(),
+                epic.getStartTime());
+        assertEquals(timed.stream().map(Subtask::getEndTime).max(LocalDateTime::compareTo).orElseThrow(),
+                epic.getEndTime());
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.javacourse.schedule.tasks.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvCodecTest {
+
+    @Test
+    void testSpecialCharactersAreQuotedAndRestored() throws IOException {
+        Task task = new Task("a, \"b\"\nc", "строка\r\nвторая", TaskStatus.IN_PROGRESS, Duration.ofMinutes(15),
+                LocalDateTime.of(2025, 2, 3, 4, 5, 6, 700_000_000));
+        task.setId(7);
+        StringBuilder csv = new StringBuilder();
+        CsvCodec.write(csv, task);
+
+        assertEquals("7,TASK,\"a, \"\"b\"\"\nc\",IN_PROGRESS,\"строка\r\nвторая\",,15,2025-02-03T04:05:06.700", csv.toString());
+
+        Task read = readAll(csv.toString()).getFirst();
+        assertEquals(task.getName(), read.getName());
+        assertEquals(task.getDescription(), read.getDescription());
+        assertEquals(task.getStartTime(), read.getStartTime());
+        assertEquals(task.getDuration(), read.getDuration());
+    }
+
+    @Test
+    void testRowsOfEveryTypeRoundTrip() throws IOException {
+        Epic epic = new Epic("E", "");
+        epic.setId(1);
+        epic.setStatus(TaskStatus.DONE);
+        Subtask subtask = new Subtask("S", "D", TaskStatus.NEW, 1, null, LocalDateTime.of(2025, 1, 1, 0, 0, 30));
+        subtask.setId(2);
+        StringBuilder csv = new StringBuilder();
+        CsvCodec.write(csv, epic);
+        csv.append("\r\n\r\n   \n");
+        CsvCodec.write(csv, subtask);
+
+        List<Task> rows = readAll(csv.toString());
+
+        assertEquals(2, rows.size());
+        Epic e = assertInstanceOf(Epic.class, rows.get(0));
+        assertEquals("", e.getDescription());
+        assertEquals(TaskStatus.DONE, e.getStatus());
+        Subtask s = assertInstanceOf(Subtask.class, rows.get(1));
+        assertEquals(1, s.getEpicId());
+        assertNull(s.getDuration());
+        assertEquals(subtask.getStartTime(), s.getStartTime());
+    }
+
+    @Test
+    void testLegacyRowsAreRead() throws IOException {
+        List<Task> rows = readAll("3,SUBTASK,S,DONE,D,1,30,2025-01-01T10:00\n4,TASK,T,NEW,D,,,\n");
+        assertEquals(LocalDateTime.of(2025, 1, 1, 10, 0), rows.get(0).getStartTime());
+        assertEquals(Duration.ofMinutes(30), rows.get(0).getDuration());
+        assertNull(rows.get(1).getStartTime());
+    }
+
+    @Test
+    void testMalformedRowsAreRejected() {
+        assertThrows(ManagerSaveException.class, () -> readAll("1,TASK,T,NEW,D,,\n"));
+        assertThrows(ManagerSaveException.class, () -> readAll("x,TASK,T,NEW,D,,,\n"));
+        assertThrows(ManagerSaveException.class, () -> readAll("1,STORY,T,NEW,D,,,\n"));
+        assertThrows(ManagerSaveException.class, () -> readAll("1,TASK,\"T,NEW,D,,,\n"));
+        assertThrows(ManagerSaveException.class, () -> readAll("1,TASK,T,NEW,D,,5,2025-13-01T10:00\n"));
+        assertThrows(ManagerSaveException.class, () -> readAll("1,SUBTASK,T,NEW,D,,,\n"));
+    }
+
+    private static List<Task> readAll(String csv) throws IOException {
+        CsvCodec.RowReader row = new CsvCodec.RowReader(new StringReader(csv));
+        List<Task> rows = new ArrayList<>();
+        while (row.next()) {
+            rows.add(CsvCodec.read(row, 0));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,174 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.javacourse.schedule.tasks.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventLoopTaskManagerTest extends TaskManagerTest<EventLoopTaskManager> {
+
+    private final List<EventLoopTaskManager> created = new ArrayList<>();
+
+    @TempDir
+    private Path tempDir;
+
+    @Override
+    protected EventLoopTaskManager createManager() {
+        return track(new EventLoopTaskManager(new InMemoryTaskManager()));
+    }
+
+    @AfterEach
+    void closeManagers() {
+        created.forEach(EventLoopTaskManager::close);
+    }
+
+    @Test
+    void asyncWritesAreVisibleOnceTheirFutureCompletes() {
+        EventLoopTaskManager manager = createManager();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(manager.addNewTaskAsync(new Task("T" + i, "d", TaskStatus.NEW)));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        assertEquals(100, manager.getTasks().size());
+        assertNotNull(manager.getTask(futures.get(99).join()));
+    }
+
+    @Test
+    void asyncFailureCompletesFutureExceptionally() {
+        EventLoopTaskManager manager = createManager();
+        LocalDateTime start = LocalDateTime.of(2025, 11, 6, 10, 0);
+        manager.addNewTask(new Task("T1", "d", TaskStatus.NEW, Duration.ofMinutes(60), start));
+
+        CompletableFuture<Integer> overlapping = manager.addNewTaskAsync(
+                new Task("T2", "d", TaskStatus.NEW, Duration.ofMinutes(60), start.plusMinutes(30)));
+
+        CompletionException e = assertThrows(CompletionException.class, overlapping::join);
+        assertInstanceOf(ManagerTimeIntersectionException.class, e.getCause());
+        assertEquals(1, manager.getTasks().size());
+    }
+
+    @Test
+    void historyObservesQueuedViews() {
+        EventLoopTaskManager manager = createManager();
+        int first = manager.addNewTask(new Task("T1", "d", TaskStatus.NEW));
+        int second = manager.addNewTask(new Task("T2", "d", TaskStatus.NEW));
+
+        manager.getTask(second);
+        manager.getTask(first);
+
+        assertEquals(List.of(second, first), manager.getHistory().stream().map(Task::getId).toList());
+    }
+
+    @Test
+    void fileBackedDelegateIsSavedAfterBatch() throws IOException {
+        Path file = tempDir.resolve("tasks.csv");
+        EventLoopTaskManager manager = track(new EventLoopTaskManager(new FileBackedTaskManager(file)));
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(manager.addNewTaskAsync(new Task("T" + i, "d", TaskStatus.NEW)));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        long rows = Files.readAllLines(file, StandardCharsets.UTF_8).stream().filter(line -> !line.isBlank()).count();
+        assertEquals(51, rows);
+        assertEquals(50, FileBackedTaskManager.loadFromFile(file.toFile()).getTasks().size());
+    }
+
+    @Test
+    void closedManagerRejectsCommands() {
+        EventLoopTaskManager manager = createManager();
+        manager.close();
+        assertThrows(IllegalStateException.class, () -> manager.addNewTask(new Task("T", "d", TaskStatus.NEW)));
+    }
+
+    @Test
+    void readsReturnMutableCopiesAndTheSnapshotStaysFrozen() {
+        EventLoopTaskManager manager = createManager();
+        int epicId = manager.addNewEpic(new Epic("E", "d"));
+        int subtaskId = manager.addNewSubtask(new Subtask("S", "d", TaskStatus.NEW, epicId));
+        PersistentTaskManager.Board before = manager.snapshot();
+        Epic frozen = before.epics().get(epicId);
+
+        Subtask subtask = manager.getSubtask(subtaskId);
+        assertFalse(subtask.isFrozen());
+        subtask.setStatus(TaskStatus.DONE);
+        assertEquals(TaskStatus.NEW, manager.getSubtask(subtaskId).getStatus(), "a read copy is not shared");
+        manager.updateSubtask(subtask);
+        subtask.setStatus(TaskStatus.IN_PROGRESS);
+        Epic epic = manager.getEpic(epicId);
+        epic.setName("E2");
+        manager.updateEpic(epic);
+
+        assertTrue(frozen.isFrozen());
+        assertEquals(TaskStatus.NEW, frozen.getStatus());
+        assertEquals("E", frozen.getName());
+        assertSame(frozen, before.epics().get(epicId));
+        assertEquals(TaskStatus.DONE, manager.getSubtask(subtaskId).getStatus(), "the update copied the task");
+        assertEquals(TaskStatus.DONE, manager.getEpic(epicId).getStatus());
+        assertEquals("E2", manager.snapshot().epics().get(epicId).getName());
+        assertSame(manager.snapshot().subtasks().get(subtaskId), manager.snapshot().subtasks().get(subtaskId));
+
+        manager.deleteEpic(epicId);
+        assertTrue(manager.getSubtasks().isEmpty());
+        assertTrue(manager.snapshot().subtasks().isEmpty());
+        assertEquals(List.of(subtaskId), frozen.getSubtaskIds());
+    }
+
+    @Test
+    void epicUpdateKeepsTheSnapshotsOfItsSubtasks() {
+        EventLoopTaskManager manager = createManager();
+        int epicId = manager.addNewEpic(new Epic("E", "d"));
+        int subtaskId = manager.addNewSubtask(new Subtask("S", "d", TaskStatus.NEW, epicId));
+        Subtask before = manager.snapshot().subtasks().get(subtaskId);
+
+        Epic epic = manager.getEpic(epicId);
+        epic.setName("E2");
+        manager.updateEpic(epic);
+
+        assertSame(before, manager.snapshot().subtasks().get(subtaskId));
+    }
+
+    @Test
+    void commandsRacingCloseAreNeverLeftPending() throws InterruptedException {
+        for (int round = 0; round < 50; round++) {
+            EventLoopTaskManager manager = createManager();
+            List<CompletableFuture<Integer>> futures = new java.util.concurrent.CopyOnWriteArrayList<>();
+            Thread producer = new Thread(() -> {
+                try {
+                    while (true) {
+                        futures.add(manager.addNewTaskAsync(new Task("T", "d", TaskStatus.NEW)));
+                    }
+                } catch (IllegalStateException closed) {
+                    // the manager was closed
+                }
+            });
+            producer.start();
+            manager.close();
+            producer.join();
+
+            for (CompletableFuture<Integer> future : futures) {
+                assertTrue(future.isDone(), "a command accepted before close is applied");
+            }
+        }
+    }
+
+    private EventLoopTaskManager track(EventLoopTaskManager manager) {
+        created.add(manager);
+        return manager;
+    }
+}
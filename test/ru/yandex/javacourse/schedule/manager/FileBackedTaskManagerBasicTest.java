@@ -9,6 +9,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -97,6 +98,34 @@ public class FileBackedTaskManagerBasicTest {
 
     }
 
+    @Test
+    void testBulkAddIsSavedAndLoaded() {
+        int epicId = manager.addNewEpic(new Epic("E1", "ED1"));
+        manager.addNewTasks(List.of(new Task("T1", "D1", TaskStatus.NEW), new Task("T2", "D2", TaskStatus.DONE)));
+        manager.addNewSubtasks(List.of(new Subtask("S1", "SD1", TaskStatus.NEW, epicId)));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(2, loaded.getTasks().size());
+        assertEquals(1, loaded.getSubtasks().size());
+        assertEquals(1, loaded.getEpicSubtasks(epicId).size());
+    }
+
+    @Test
+    void testNamesWithSeparatorsSurviveSaveAndJournal() {
+        String name = "Купить: молоко, \"хлеб\"\nи сыр";
+        int id = manager.addNewTask(new Task(name, "D", TaskStatus.NEW));
+        assertEquals(name, FileBackedTaskManager.loadFromFile(tempFile).getTask(id).getName());
+
+        FileBackedTaskManager journaled = FileBackedTaskManager.loadFromFile(tempFile,
+                FileBackedTaskManager.Options.DEFAULT.withSaveMode(SaveMode.JOURNAL));
+        Task renamed = new Task(name + ",2", "D", TaskStatus.DONE);
+        renamed.setId(id);
+        journaled.updateTask(renamed);
+        journaled.close();
+        assertEquals(name + ",2", FileBackedTaskManager.loadFromFile(tempFile).getTask(id).getName());
+        assertTrue(FileBackedTaskManager.journalPathOf(tempFile.toPath()).toFile().delete());
+    }
+
     private String readCsv() {
         try {
             return Files.readString(tempFile.toPath(), StandardCharsets.UTF_8);
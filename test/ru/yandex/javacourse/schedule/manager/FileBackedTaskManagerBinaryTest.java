@@ -0,0 +1,63 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.javacourse.schedule.tasks.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileBackedTaskManagerBinaryTest extends TaskManagerTest<FileBackedTaskManager> {
+
+    @TempDir
+    private Path tempDir;
+
+    @Override
+    protected FileBackedTaskManager createManager() {
+        return new FileBackedTaskManager(tempDir.resolve("tasks.bin"),
+                FileBackedTaskManager.Options.DEFAULT.withSnapshotFormat(SnapshotFormat.BINARY));
+    }
+
+    @Test
+    void testBinarySnapshotIsLoadedAndStaysBinary() throws IOException {
+        Path file = tempDir.resolve("state.bin");
+        FileBackedTaskManager binary = new FileBackedTaskManager(file,
+                FileBackedTaskManager.Options.DEFAULT.withSnapshotFormat(SnapshotFormat.BINARY));
+        int epicId = binary.addNewEpic(new Epic("E", "D"));
+        int subtaskId = binary.addNewSubtask(new Subtask("S", "D", TaskStatus.DONE, epicId,
+                Duration.ofMinutes(45), LocalDateTime.of(2025, 5, 1, 12, 0)));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file.toFile());
+        assertEquals(TaskStatus.DONE, loaded.getEpic(epicId).getStatus());
+        assertEquals(LocalDateTime.of(2025, 5, 1, 12, 45), loaded.getEpic(epicId).getEndTime());
+        assertEquals(subtaskId, loaded.getPrioritizedTasks().getFirst().getId());
+
+        loaded.addNewTask(new Task("T", "D", TaskStatus.NEW));
+        assertTrue(BinarySnapshot.isBinary(file));
+        assertEquals(1, FileBackedTaskManager.loadFromFile(file.toFile()).getTasks().size());
+    }
+
+    @Test
+    void testConvertBetweenCsvAndBinary() throws IOException {
+        Path csv = tempDir.resolve("state.csv");
+        FileBackedTaskManager manager = new FileBackedTaskManager(csv);
+        int epicId = manager.addNewEpic(new Epic("E", "D"));
+        manager.addNewSubtask(new Subtask("S", "D", TaskStatus.NEW, epicId));
+        manager.addNewTask(new Task("T", "D", TaskStatus.IN_PROGRESS, Duration.ofMinutes(5),
+                LocalDateTime.of(2025, 1, 1, 8, 0, 30)));
+
+        Path binary = tempDir.resolve("state.bin");
+        FileBackedTaskManager.convert(csv.toFile(), binary, SnapshotFormat.BINARY_WITH_DICTIONARY);
+        assertTrue(BinarySnapshot.isBinary(binary));
+
+        Path back = tempDir.resolve("back.csv");
+        FileBackedTaskManager.convert(binary.toFile(), back, SnapshotFormat.CSV);
+        assertEquals(Files.readAllLines(csv, StandardCharsets.UTF_8), Files.readAllLines(back, StandardCharsets.UTF_8));
+    }
+}
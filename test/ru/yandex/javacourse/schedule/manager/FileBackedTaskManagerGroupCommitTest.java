@@ -0,0 +1,122 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.javacourse.schedule.tasks.Epic;
+import ru.yandex.javacourse.schedule.tasks.Task;
+import ru.yandex.javacourse.schedule.tasks.TaskStatus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileBackedTaskManagerGroupCommitTest extends TaskManagerTest<FileBackedTaskManager> {
+
+    @TempDir
+    private Path tempDir;
+
+    private final List<FileBackedTaskManager> created = new ArrayList<>();
+
+    @Override
+    protected FileBackedTaskManager createManager() {
+        return track(new FileBackedTaskManager(tempDir.resolve("tasks.csv"),
+                FileBackedTaskManager.Options.DEFAULT.withDurability(Durability.GROUP_COMMIT, Duration.ofMillis(5))));
+    }
+
+    @AfterEach
+    void closeManagers() {
+        created.forEach(FileBackedTaskManager::close);
+    }
+
+    @Test
+    void testBurstIsCoalescedIntoOneWrite() throws IOException {
+        Path file = tempDir.resolve("burst.csv");
+        FileBackedTaskManager grouped = track(new FileBackedTaskManager(file,
+                FileBackedTaskManager.Options.DEFAULT.withDurability(Durability.GROUP_COMMIT, Duration.ofHours(1))));
+        for (int i = 0; i < 100; i++) {
+            grouped.addNewTask(new Task("T" + i, "D", TaskStatus.NEW));
+        }
+        assertFalse(Files.exists(file), "nothing is written before the interval passes");
+
+        grouped.flush();
+
+        assertEquals(101, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+        FileBackedTaskManager.SaveStats stats = grouped.saveStats();
+        assertEquals(100, stats.changes());
+        assertEquals(1, stats.writes());
+        assertEquals(99, stats.coalesced());
+    }
+
+    @Test
+    void testBackgroundWriterPersistsAfterInterval() throws InterruptedException {
+        Path file = tempDir.resolve("background.csv");
+        FileBackedTaskManager grouped = track(new FileBackedTaskManager(file,
+                FileBackedTaskManager.Options.DEFAULT.withDurability(Durability.GROUP_COMMIT, Duration.ofMillis(10))));
+        grouped.addNewTask(new Task("T", "D", TaskStatus.NEW));
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (grouped.saveStats().writes() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertEquals(1, FileBackedTaskManager.loadFromFile(file.toFile()).getTasks().size());
+    }
+
+    @Test
+    void testOnCloseWritesOnlyWhenClosed() {
+        Path file = tempDir.resolve("on-close.csv");
+        FileBackedTaskManager deferred = track(new FileBackedTaskManager(file,
+                FileBackedTaskManager.Options.DEFAULT.withSaveMode(SaveMode.JOURNAL)
+                        .withDurability(Durability.ON_CLOSE, Duration.ZERO)));
+        int epicId = deferred.addNewEpic(new Epic("E", "D"));
+        deferred.addNewTask(new Task("T", "D", TaskStatus.NEW));
+        assertEquals(0, deferred.saveStats().writes());
+
+        deferred.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file.toFile());
+        assertEquals(1, loaded.getTasks().size());
+        assertNotNull(loaded.getEpic(epicId));
+        assertEquals(1, deferred.saveStats().writes());
+    }
+
+    @Test
+    void testFlushInsideBatchIsRejected() {
+        FileBackedTaskManager grouped = createManager();
+        assertThrows(IllegalStateException.class, () -> grouped.inBatch(grouped::flush));
+    }
+
+    @Test
+    void testPerOperationChangesDoNotDeadlockWithFlush() {
+        Path file = tempDir.resolve("per-operation.csv");
+        FileBackedTaskManager direct = track(new FileBackedTaskManager(file,
+                FileBackedTaskManager.Options.DEFAULT.withDurability(Durability.PER_OPERATION, Duration.ZERO)));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            Thread flusher = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    direct.flush();
+                }
+            });
+            flusher.start();
+            for (int i = 0; i < 200; i++) {
+                direct.addNewTask(new Task("T" + i, "D", TaskStatus.NEW));
+            }
+            flusher.join();
+        });
+
+        assertEquals(200, FileBackedTaskManager.loadFromFile(file.toFile()).getTasks().size());
+    }
+
+    private FileBackedTaskManager track(FileBackedTaskManager manager) {
+        created.add(manager);
+        return manager;
+    }
+}
@@ -0,0 +1,164 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.javacourse.schedule.tasks.*;
+import ru.yandex.javacourse.schedule.util.IntSet;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileBackedTaskManagerHistoryTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testHistoryIsRestoredOnLoad() throws IOException {
+        Path file = tempDir.resolve("tasks.csv");
+        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        int first = manager.addNewTask(new Task("A", "D", TaskStatus.NEW));
+        int second = manager.addNewTask(new Task("B", "D", TaskStatus.NEW));
+        int epicId = manager.addNewEpic(new Epic("E", "D"));
+        int subtaskId = manager.addNewSubtask(new Subtask("S", "D", TaskStatus.NEW, epicId));
+        manager.getTask(first);
+        manager.getTask(second);
+        manager.getSubtask(subtaskId);
+        manager.getEpic(epicId);
+        manager.getTask(first);
+        manager.deleteTask(second);
+        manager.close();
+
+        assertEquals(List.of("1", "2", "4", "3", "1", "-2"),
+                Files.readAllLines(FileBackedTaskManager.historyPathOf(file), StandardCharsets.UTF_8));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file.toFile());
+        assertEquals(List.of(subtaskId, epicId, first), ids(loaded.getHistory()));
+        loaded.getSubtask(subtaskId);
+        assertEquals(List.of(epicId, first, subtaskId), ids(loaded.getHistory()));
+        loaded.close();
+
+        assertEquals(List.of(epicId, first, subtaskId),
+                ids(FileBackedTaskManager.loadFromFile(file.toFile()).getHistory()));
+    }
+
+    @Test
+    void testRemovingUnviewedTasksWritesNothing() throws IOException {
+        Path file = tempDir.resolve("unviewed.csv");
+        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        int viewed = manager.addNewTask(new Task("A", "D", TaskStatus.NEW));
+        for (int i = 0; i < 10; i++) {
+            manager.addNewTask(new Task("T" + i, "D", TaskStatus.NEW));
+        }
+        manager.getTask(viewed);
+        manager.deleteTasks();
+
+        assertEquals(List.of("1", "-1"),
+                Files.readAllLines(FileBackedTaskManager.historyPathOf(file), StandardCharsets.UTF_8));
+        assertTrue(FileBackedTaskManager.loadFromFile(file.toFile()).getHistory().isEmpty());
+    }
+
+    @Test
+    void testRemovingEvictedIdsWritesNothing() throws IOException {
+        Path log = tempDir.resolve("evicted.history");
+        List<Task> tasks = List.of(new Task(1, "A", "D", TaskStatus.NEW), new Task(2, "B", "D", TaskStatus.NEW),
+                new Task(3, "C", "D", TaskStatus.NEW));
+        LoggedHistoryManager history = new LoggedHistoryManager(log, 2);
+        history.attach(id -> tasks.get(id - 1));
+        tasks.forEach(history::add);
+
+        history.remove(1);
+        IntSet ids = new IntSet();
+        ids.add(1);
+        ids.add(2);
+        history.removeAll(ids);
+        history.close();
+
+        assertEquals(List.of("1", "2", "3", "-2"), Files.readAllLines(log, StandardCharsets.UTF_8));
+        assertEquals(List.of(3), ids(history.getHistory()));
+    }
+
+    @Test
+    void testClearingATypeAndCompactingDoNotLookTasksUp() throws IOException {
+        Path log = tempDir.resolve("by-type.history");
+        List<Task> tasks = List.of(new Task(1, "A", "D", TaskStatus.NEW), new Epic(2, "E", "D"),
+                new Task(3, "C", "D", TaskStatus.NEW));
+        int[] lookups = {0};
+        LoggedHistoryManager history = new LoggedHistoryManager(log);
+        history.attach(id -> {
+            lookups[0]++;
+            return null;
+        });
+        tasks.forEach(history::add);
+
+        history.removeAll(TaskType.TASK);
+        // three views and two removals are logged so far; the last of these views triggers compaction
+        for (int i = 5; i < LoggedHistoryManager.MIN_COMPACTION_RECORDS; i++) {
+            history.add(tasks.get(1));
+        }
+        history.close();
+
+        assertEquals(0, lookups[0]);
+        assertEquals(List.of("2"), Files.readAllLines(log, StandardCharsets.UTF_8),
+                "the log is compacted to the ids even when they do not resolve");
+    }
+
+    @Test
+    void testLogIsCompactedIntoTheHistoryOrder() throws IOException {
+        Path file = tempDir.resolve("compact.csv");
+        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        int first = manager.addNewTask(new Task("A", "D", TaskStatus.NEW));
+        int second = manager.addNewTask(new Task("B", "D", TaskStatus.NEW));
+        for (int i = 0; i < 5_000; i++) {
+            manager.getTask(first);
+            manager.getTask(second);
+        }
+
+        List<String> log = Files.readAllLines(FileBackedTaskManager.historyPathOf(file), StandardCharsets.UTF_8);
+        assertTrue(log.size() < LoggedHistoryManager.MIN_COMPACTION_RECORDS, "log size " + log.size());
+        assertEquals(List.of(first, second), ids(FileBackedTaskManager.loadFromFile(file.toFile()).getHistory()));
+    }
+
+    @Test
+    void testNewManagerStartsNewLog() throws IOException {
+        Path file = tempDir.resolve("fresh.csv");
+        FileBackedTaskManager old = new FileBackedTaskManager(file);
+        old.getTask(old.addNewTask(new Task("A", "D", TaskStatus.NEW)));
+        old.close();
+
+        FileBackedTaskManager fresh = new FileBackedTaskManager(file);
+        assertTrue(fresh.getHistory().isEmpty());
+        int id = fresh.addNewTask(new Task("B", "D", TaskStatus.NEW));
+        fresh.getTask(id);
+        fresh.close();
+
+        assertEquals(List.of(Integer.toString(id)),
+                Files.readAllLines(FileBackedTaskManager.historyPathOf(file), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testLazyOpenReadsHistoryTasksOnFirstUse() {
+        Path file = tempDir.resolve("lazy.csv");
+        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        int first = manager.addNewTask(new Task("A", "D", TaskStatus.NEW));
+        int second = manager.addNewTask(new Task("B", "D", TaskStatus.NEW));
+        manager.getTask(second);
+        manager.getTask(first);
+        manager.close();
+
+        FileBackedTaskManager lazy = FileBackedTaskManager.openLazy(file.toFile());
+        assertEquals(0, lazy.lazyReads());
+        assertEquals(List.of(second, first), ids(lazy.getHistory()));
+        assertEquals(2, lazy.lazyReads());
+        lazy.close();
+    }
+
+    private static List<Integer> ids(List<Task> tasks) {
+        return tasks.stream().map(Task::getId).toList();
+    }
+}
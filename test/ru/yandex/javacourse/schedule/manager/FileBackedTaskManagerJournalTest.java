@@ -0,0 +1,191 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.javacourse.schedule.tasks.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileBackedTaskManagerJournalTest extends TaskManagerTest<FileBackedTaskManager> {
+
+    @TempDir
+    private Path tempDir;
+
+    @Override
+    protected FileBackedTaskManager createManager() {
+        return new FileBackedTaskManager(tempDir.resolve("tasks.csv"),
+                FileBackedTaskManager.Options.DEFAULT.withSaveMode(SaveMode.JOURNAL));
+    }
+
+    @Test
+    void testChangesAreAppendedAndReplayedOnLoad() throws IOException {
+        Path file = tempDir.resolve("journal.csv");
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file,
+                FileBackedTaskManager.Options.DEFAULT.withSaveMode(SaveMode.JOURNAL));
+        int taskId = journaled.addNewTask(new Task("T", "D", TaskStatus.NEW));
+        int removedId = journaled.addNewTask(new Task("R", "D", TaskStatus.NEW));
+        int epicId = journaled.addNewEpic(new Epic("E", "D"));
+        int subtaskId = journaled.addNewSubtask(new Subtask("S", "D", TaskStatus.DONE, epicId,
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 10, 0)));
+        Task updated = new Task("T2", "D", TaskStatus.IN_PROGRESS);
+        updated.setId(taskId);
+        journaled.updateTask(updated);
+        journaled.deleteTask(removedId);
+        journaled.close();
+
+        List<String> snapshot = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(1, snapshot.size(), "changes go to the journal, not the snapshot");
+        assertTrue(Files.exists(FileBackedTaskManager.journalPathOf(file)));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file.toFile());
+        assertEquals(1, loaded.getTasks().size());
+        assertEquals("T2", loaded.getTask(taskId).getName());
+        assertNull(loaded.getTask(removedId));
+        assertEquals(TaskStatus.DONE, loaded.getEpic(epicId).getStatus());
+        assertEquals(List.of(subtaskId), loaded.getEpic(epicId).getSubtaskIds());
+        assertTrue(loaded.addNewTask(new Task("N", "D", TaskStatus.NEW)) > subtaskId);
+    }
+
+    @Test
+    void testCascadingDeletesAreReplayed() {
+        Path file = tempDir.resolve("cascade.csv");
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file,
+                FileBackedTaskManager.Options.DEFAULT.withSaveMode(SaveMode.JOURNAL));
+        int keptEpic = journaled.addNewEpic(new Epic("E1", "D"));
+        int removedEpic = journaled.addNewEpic(new Epic("E2", "D"));
+        journaled.addNewSubtask(new Subtask("S1", "D", TaskStatus.NEW, keptEpic));
+        journaled.addNewSubtask(new Subtask("S2", "D", TaskStatus.NEW, removedEpic));
+        journaled.deleteEpic(removedEpic);
+        journaled.addNewTask(new Task("T", "D", TaskStatus.NEW));
+        journaled.deleteTasks();
+        journaled.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file.toFile());
+        assertEquals(List.of(keptEpic), loaded.getEpics().stream().map(Task::getId).toList());
+        assertEquals(1, loaded.getSubtasks().size());
+        assertTrue(loaded.getTasks().isEmpty());
+
+        journaled.deleteEpics();
+        journaled.close();
+        loaded = FileBackedTaskManager.loadFromFile(file.toFile());
+        assertTrue(loaded.getEpics().isEmpty());
+        assertTrue(loaded.getSubtasks().isEmpty());
+    }
+
+    @Test
+    void testTornLastRecordIsSkippedAndTruncated() throws IOException {
+        for (String torn : List.of("-,1", "+,99,TASK,\"Незаконч")) {
+            Path file = tempDir.resolve("torn" + torn.length() + ".csv");
+            FileBackedTaskManager journaled = new FileBackedTaskManager(file,
+                FileBackedTaskManager.Options.DEFAULT.withSaveMode(SaveMode.JOURNAL));
+            int taskId = journaled.addNewTask(new Task("T", "D", TaskStatus.NEW));
+            journaled.close();
+            Path journal = FileBackedTaskManager.journalPathOf(file);
+            Files.writeString(journal, torn, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+            FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file.toFile(),
+                FileBackedTaskManager.Options.DEFAULT.withSaveMode(SaveMode.JOURNAL));
+            assertNotNull(loaded.getTask(taskId), torn);
+            assertEquals(1, loaded.getTasks().size(), torn);
+            int addedId = loaded.addNewTask(new Task("N", "D", TaskStatus.NEW));
+            loaded.close();
+
+            FileBackedTaskManager reloaded = FileBackedTaskManager.loadFromFile(file.toFile());
+            assertEquals(List.of(taskId, addedId), reloaded.getTasks().stream().map(Task::getId).toList(), torn);
+        }
+    }
+
+    @Test
+    void testJournalSizeIsCountedInBytes() throws IOException {
+        Path path = tempDir.resolve("size.journal");
+        try (Journal journal = new Journal(path)) {
+            journal.put(new Task(1, "Задача", "Описание \uD83D\uDE00", TaskStatus.NEW));
+            journal.delete(1);
+            journal.flush();
+            assertEquals(Files.size(path), journal.size());
+        }
+    }
+
+    @Test
+    void testRecordsAddedDuringAWriteWaitForTheNextOne() throws IOException {
+        Path path = tempDir.resolve("taken.journal");
+        try (Journal journal = new Journal(path)) {
+            journal.put(new Task(1, "T1", "D", TaskStatus.NEW));
+            CharSequence taken = journal.take();
+            journal.delete(1);
+
+            journal.write(taken);
+            assertEquals(1, Files.readAllLines(path, StandardCharsets.UTF_8).size());
+            journal.flush();
+            assertEquals(List.of("-,1"), Files.readAllLines(path, StandardCharsets.UTF_8).subList(1, 2));
+            assertEquals(Files.size(path), journal.size());
+        }
+    }
+
+    @Test
+    void testConcurrentChangesSurviveWritesAndCompactions() throws InterruptedException {
+        Path file = tempDir.resolve("concurrent.csv");
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file,
+                FileBackedTaskManager.Options.DEFAULT.withSaveMode(SaveMode.JOURNAL).withCompactionThreshold(512));
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    journaled.addNewTask(new Task("T" + i, "D", TaskStatus.NEW));
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        journaled.close();
+
+        assertFalse(Files.exists(FileBackedTaskManager.compactingJournalPathOf(file)));
+        assertEquals(400, FileBackedTaskManager.loadFromFile(file.toFile()).getTasks().size());
+    }
+
+    @Test
+    void testJournalIsCompactedIntoSnapshot() throws IOException {
+        Path file = tempDir.resolve("compact.csv");
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file,
+                FileBackedTaskManager.Options.DEFAULT.withSaveMode(SaveMode.JOURNAL).withCompactionThreshold(256));
+        for (int i = 0; i < 50; i++) {
+            journaled.addNewTask(new Task("T" + i, "D", TaskStatus.NEW));
+        }
+        journaled.close();
+
+        long rows = Files.readAllLines(file, StandardCharsets.UTF_8).size() - 1;
+        long records = Files.readAllLines(FileBackedTaskManager.journalPathOf(file), StandardCharsets.UTF_8).size();
+        assertTrue(rows > 0, "compaction wrote a snapshot");
+        assertTrue(records < 50, "compacted records left the journal");
+        assertFalse(Files.exists(FileBackedTaskManager.compactingJournalPathOf(file)));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file.toFile());
+        assertEquals(50, loaded.getTasks().size());
+    }
+
+    @Test
+    void testSnapshotSaveDropsLeftoverJournal() {
+        Path file = tempDir.resolve("mixed.csv");
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file,
+                FileBackedTaskManager.Options.DEFAULT.withSaveMode(SaveMode.JOURNAL));
+        int taskId = journaled.addNewTask(new Task("T", "D", TaskStatus.NEW));
+        journaled.close();
+
+        FileBackedTaskManager snapshotted = FileBackedTaskManager.loadFromFile(file.toFile());
+        snapshotted.deleteTask(taskId);
+        assertFalse(Files.exists(FileBackedTaskManager.journalPathOf(file)));
+
+        assertTrue(FileBackedTaskManager.loadFromFile(file.toFile()).getTasks().isEmpty());
+    }
+}
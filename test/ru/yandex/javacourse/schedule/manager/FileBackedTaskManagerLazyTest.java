@@ -0,0 +1,175 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.javacourse.schedule.tasks.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileBackedTaskManagerLazyTest extends TaskManagerTest<FileBackedTaskManager> {
+
+    @TempDir
+    private Path tempDir;
+
+    private final List<FileBackedTaskManager> created = new ArrayList<>();
+
+    @Override
+    protected FileBackedTaskManager createManager() {
+        Path file = tempDir.resolve("tasks.csv");
+        try {
+            Files.writeString(file, CsvCodec.HEADER + "\n", StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return track(FileBackedTaskManager.openLazy(file.toFile()));
+    }
+
+    @AfterEach
+    void closeManagers() {
+        created.forEach(FileBackedTaskManager::close);
+    }
+
+    @Test
+    void testLazyOpenSeesTheSameStateAsLoad() {
+        Path file = tempDir.resolve("same.csv");
+        fill(file, 30);
+
+        FileBackedTaskManager eager = FileBackedTaskManager.loadFromFile(file.toFile());
+        FileBackedTaskManager lazy = track(FileBackedTaskManager.openLazy(file.toFile(), 4));
+
+        assertEquals(rows(byId(eager.getTasks())), rows(byId(lazy.getTasks())));
+        assertEquals(rows(byId(eager.getEpics())), rows(byId(lazy.getEpics())));
+        assertEquals(rows(byId(eager.getSubtasks())), rows(byId(lazy.getSubtasks())));
+        assertEquals(rows(eager.getPrioritizedTasks()), rows(lazy.getPrioritizedTasks()));
+        int epicId = eager.getEpics().getFirst().getId();
+        assertEquals(rows(eager.getEpicSubtasks(epicId)), rows(lazy.getEpicSubtasks(epicId)));
+        for (TaskType type : TaskType.values()) {
+            for (TaskStatus status : TaskStatus.values()) {
+                assertEquals(eager.countByStatus(type, status), lazy.countByStatus(type, status));
+            }
+        }
+        assertEquals(eager.addNewTask(new Task("N", "D", TaskStatus.NEW)),
+                lazy.addNewTask(new Task("N", "D", TaskStatus.NEW)));
+    }
+
+    @Test
+    void testColdGetIsOneReadAndCacheIsBounded() {
+        Path file = tempDir.resolve("cold.csv");
+        List<Integer> ids = fill(file, 50);
+        FileBackedTaskManager lazy = track(FileBackedTaskManager.openLazy(file.toFile(), 8));
+        assertEquals(0, lazy.lazyReads(), "opening reads no task into memory");
+
+        Task task = lazy.getTask(ids.get(10));
+        assertEquals("Задача, №10", task.getName());
+        assertEquals(1, lazy.lazyReads());
+        lazy.getTask(ids.get(10));
+        assertEquals(1, lazy.lazyReads(), "a cached task is not read again");
+
+        assertEquals(50, lazy.getTasks().size());
+        assertTrue(((LazyTaskMap<Task>) lazy.tasks).cached() <= 8);
+        assertNull(lazy.getTask(100_000));
+    }
+
+    @Test
+    void testChangesAreJournaledAndSnapshotStaysUntouched() throws IOException {
+        Path file = tempDir.resolve("changes.csv");
+        List<Integer> ids = fill(file, 10);
+        byte[] snapshot = Files.readAllBytes(file);
+
+        FileBackedTaskManager lazy = track(FileBackedTaskManager.openLazy(file.toFile(), 2));
+        Task updated = new Task("Новое имя", "D", TaskStatus.DONE);
+        updated.setId(ids.get(0));
+        lazy.updateTask(updated);
+        lazy.deleteTask(ids.get(1));
+        int epicId = lazy.getEpics().getFirst().getId();
+        int subtaskId = lazy.getEpicSubtasks(epicId).getFirst().getId();
+        lazy.deleteSubtask(subtaskId);
+        int addedId = lazy.addNewTask(new Task("Добавлена", "D", TaskStatus.NEW));
+        lazy.close();
+
+        assertArrayEquals(snapshot, Files.readAllBytes(file), "a lazy manager only appends to the journal");
+
+        for (FileBackedTaskManager reopened : List.of(track(FileBackedTaskManager.openLazy(file.toFile(), 2)),
+                FileBackedTaskManager.loadFromFile(file.toFile()))) {
+            assertEquals("Новое имя", reopened.getTask(ids.get(0)).getName());
+            assertNull(reopened.getTask(ids.get(1)));
+            assertNull(reopened.getSubtask(subtaskId));
+            assertFalse(reopened.getEpic(epicId).getSubtaskIds().contains(subtaskId));
+            assertEquals("Добавлена", reopened.getTask(addedId).getName());
+            assertEquals(10, reopened.getTasks().size());
+        }
+    }
+
+    @Test
+    void testClearedTypeInJournalHidesSnapshotRows() {
+        Path file = tempDir.resolve("cleared.csv");
+        fill(file, 5);
+        FileBackedTaskManager lazy = track(FileBackedTaskManager.openLazy(file.toFile()));
+        lazy.deleteTasks();
+        int kept = lazy.addNewTask(new Task("После очистки", "D", TaskStatus.NEW));
+        lazy.close();
+
+        FileBackedTaskManager reopened = track(FileBackedTaskManager.openLazy(file.toFile()));
+        assertEquals(List.of(kept), reopened.getTasks().stream().map(Task::getId).toList());
+        assertFalse(reopened.getSubtasks().isEmpty());
+    }
+
+    @Test
+    void testBinarySnapshotIsRejected() {
+        Path file = tempDir.resolve("tasks.bin");
+        FileBackedTaskManager binary = new FileBackedTaskManager(file,
+                FileBackedTaskManager.Options.DEFAULT.withSnapshotFormat(SnapshotFormat.BINARY));
+        binary.addNewTask(new Task("T", "D", TaskStatus.NEW));
+
+        assertThrows(ManagerSaveException.class, () -> FileBackedTaskManager.openLazy(file.toFile()));
+    }
+
+    private List<Integer> fill(Path file, int count) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        List<Integer> ids = new ArrayList<>();
+        manager.inBatch(() -> {
+            LocalDateTime start = LocalDateTime.of(2025, 3, 1, 9, 0);
+            for (int i = 0; i < count; i++) {
+                Task task = i % 2 == 0
+                        ? new Task("Задача, №" + i, "строка 1\nстрока \"2\"", TaskStatus.NEW,
+                        Duration.ofMinutes(15), start.plusHours(i))
+                        : new Task("Задача, №" + i, "D", TaskStatus.IN_PROGRESS);
+                ids.add(manager.addNewTask(task));
+            }
+            int epicId = manager.addNewEpic(new Epic("Эпик", "D"));
+            manager.addNewSubtask(new Subtask("S1", "D", TaskStatus.DONE, epicId,
+                    Duration.ofMinutes(30), start.minusDays(1)));
+            manager.addNewSubtask(new Subtask("S2", "D", TaskStatus.NEW, epicId));
+        });
+        return ids;
+    }
+
+    private static List<? extends Task> byId(List<? extends Task> tasks) {
+        return tasks.stream().sorted(Comparator.comparingInt(Task::getId)).toList();
+    }
+
+    private static List<String> rows(List<? extends Task> tasks) {
+        return tasks.stream().map(task -> {
+            StringBuilder row = new StringBuilder();
+            CsvCodec.write(row, task);
+            return row.append(',').append(task.getEndTime()).toString();
+        }).toList();
+    }
+
+    private FileBackedTaskManager track(FileBackedTaskManager manager) {
+        created.add(manager);
+        return manager;
+    }
+}
@@ -0,0 +1,132 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.javacourse.schedule.tasks.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileBackedTaskManagerSegmentedTest extends TaskManagerTest<FileBackedTaskManager> {
+
+    private static final int SIZE = SegmentedSnapshot.SEGMENT_SIZE;
+
+    @TempDir
+    private Path tempDir;
+
+    @Override
+    protected FileBackedTaskManager createManager() {
+        return Managers.getSegmentedFileBackedTask(tempDir.resolve("tasks.csv"));
+    }
+
+    @Test
+    void testSegmentsAreLoadedBack() throws IOException {
+        Path file = tempDir.resolve("round.csv");
+        FileBackedTaskManager segmented = Managers.getSegmentedFileBackedTask(file);
+        List<Integer> ids = fill(segmented, 2 * SIZE + 10);
+        int epicId = segmented.addNewEpic(new Epic("Эпик", "D"));
+        int subtaskId = segmented.addNewSubtask(new Subtask("S, \"1\"", "D", TaskStatus.DONE, epicId,
+                Duration.ofMinutes(30), LocalDateTime.of(2024, 1, 1, 0, 0)));
+
+        assertTrue(Files.readString(file, StandardCharsets.UTF_8).startsWith("TKSG,"));
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file.toFile());
+        assertEquals(ids.size(), loaded.getTasks().size());
+        assertEquals(TaskStatus.DONE, loaded.getEpic(epicId).getStatus());
+        assertEquals("S, \"1\"", loaded.getSubtask(subtaskId).getName());
+        assertEquals(subtaskId, loaded.getPrioritizedTasks().getFirst().getId());
+        assertTrue(loaded.addNewTask(new Task("N", "D", TaskStatus.NEW)) > subtaskId);
+    }
+
+    @Test
+    void testOnlyTouchedSegmentIsRewritten() throws IOException {
+        Path file = tempDir.resolve("touched.csv");
+        FileBackedTaskManager segmented = Managers.getSegmentedFileBackedTask(file);
+        List<Integer> ids = fill(segmented, 3 * SIZE);
+        List<Object> before = fileKeys(file);
+        assertEquals(4, before.size(), "ids 1.." + 3 * SIZE + " span four segments");
+
+        Task updated = new Task("Изменена", "D", TaskStatus.DONE);
+        updated.setId(ids.get(SIZE + 5));
+        segmented.updateTask(updated);
+
+        List<Object> after = fileKeys(file);
+        assertEquals(before.get(0), after.get(0));
+        assertNotEquals(before.get(1), after.get(1));
+        assertEquals(before.get(2), after.get(2));
+        assertEquals(before.get(3), after.get(3));
+        assertEquals("Изменена", FileBackedTaskManager.loadFromFile(file.toFile()).getTask(updated.getId()).getName());
+
+        FileBackedTaskManager reopened = FileBackedTaskManager.loadFromFile(file.toFile(),
+                FileBackedTaskManager.Options.DEFAULT.withSaveMode(SaveMode.SEGMENTED));
+        reopened.deleteTask(ids.get(0));
+        after = fileKeys(file);
+        assertNotEquals(before.get(0), after.get(0));
+        assertEquals(before.get(2), after.get(2), "a reloaded manager keeps writing only touched segments");
+    }
+
+    @Test
+    void testEmptiedSegmentIsDeletedAndClearRewritesAll() throws IOException {
+        Path file = tempDir.resolve("emptied.csv");
+        FileBackedTaskManager segmented = Managers.getSegmentedFileBackedTask(file);
+        List<Integer> ids = fill(segmented, 2 * SIZE);
+        segmented.deleteAll(ids.subList(SIZE - 1, 2 * SIZE - 1));
+        assertEquals(2, fileKeys(file).size());
+
+        segmented.deleteTasks();
+        assertTrue(fileKeys(file).isEmpty());
+        assertTrue(FileBackedTaskManager.loadFromFile(file.toFile()).getTasks().isEmpty());
+    }
+
+    @Test
+    void testSnapshotSaveReplacesSegments() throws IOException {
+        Path file = tempDir.resolve("switch.csv");
+        FileBackedTaskManager segmented = Managers.getSegmentedFileBackedTask(file);
+        fill(segmented, 10);
+
+        FileBackedTaskManager snapshot = FileBackedTaskManager.loadFromFile(file.toFile());
+        snapshot.addNewTask(new Task("T", "D", TaskStatus.NEW));
+
+        assertEquals(CsvCodec.HEADER, Files.readAllLines(file, StandardCharsets.UTF_8).getFirst());
+        assertFalse(Files.exists(SegmentedSnapshot.directoryOf(file)));
+        assertEquals(11, FileBackedTaskManager.loadFromFile(file.toFile()).getTasks().size());
+    }
+
+    @Test
+    void testSegmentedModeRequiresCsv() {
+        assertThrows(IllegalArgumentException.class, () -> new FileBackedTaskManager(tempDir.resolve("b.bin"),
+                FileBackedTaskManager.Options.DEFAULT.withSaveMode(SaveMode.SEGMENTED)
+                        .withSnapshotFormat(SnapshotFormat.BINARY)));
+    }
+
+    private static List<Integer> fill(FileBackedTaskManager manager, int count) {
+        List<Integer> ids = new ArrayList<>();
+        manager.inBatch(() -> {
+            for (int i = 0; i < count; i++) {
+                ids.add(manager.addNewTask(new Task("T" + i, "D", TaskStatus.NEW)));
+            }
+        });
+        return ids;
+    }
+
+    // an atomic replace gives the segment a new file, so its key tells whether it was rewritten
+    private static List<Object> fileKeys(Path file) throws IOException {
+        SegmentedSnapshot.Manifest manifest = SegmentedSnapshot.manifest(file);
+        Path generation = SegmentedSnapshot.generationOf(file, manifest.generation());
+        List<Object> keys = new ArrayList<>();
+        try (var segments = Files.list(generation)) {
+            for (Path segment : segments.sorted().toList()) {
+                keys.add(Files.readAttributes(segment, BasicFileAttributes.class).fileKey());
+            }
+        }
+        return keys;
+    }
+}
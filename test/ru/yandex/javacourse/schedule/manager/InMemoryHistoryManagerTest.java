@@ -2,13 +2,20 @@ package ru.yandex.javacourse.schedule.manager;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import ru.yandex.javacourse.schedule.tasks.Epic;
+import ru.yandex.javacourse.schedule.tasks.Subtask;
 import ru.yandex.javacourse.schedule.tasks.Task;
 import ru.yandex.javacourse.schedule.tasks.TaskStatus;
+import ru.yandex.javacourse.schedule.tasks.TaskType;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class InMemoryHistoryManagerTest {
@@ -99,4 +106,99 @@ public class InMemoryHistoryManagerTest {
         assertTrue(history.getHistory().isEmpty());
     }
 
-}
\ No newline at end of file
+    @Test
+    void leastRecentlyViewedIsEvictedPastCapacity() {
+        HistoryManager history = new InMemoryHistoryManager(2);
+        Task t1 = task(1);
+        Task t2 = task(2);
+        Task t3 = task(3);
+
+        history.add(t1);
+        history.add(t2);
+        history.add(t1);
+        history.add(t3);
+
+        assertEquals(List.of(t1, t3), history.getHistory());
+        assertThrows(IllegalArgumentException.class, () -> new InMemoryHistoryManager(0));
+    }
+
+    @Test
+    void resolvedHistoryKeepsOnlyIds() {
+        Map<Integer, Task> stored = new HashMap<>();
+        HistoryManager history = new InMemoryHistoryManager(10, stored::get);
+        Task viewed = task(1);
+        stored.put(1, viewed);
+        stored.put(2, task(2));
+        history.add(viewed);
+        history.add(stored.get(2));
+
+        Task replacement = task(1);
+        stored.put(1, replacement);
+        stored.remove(2);
+
+        assertEquals(1, history.getHistory().size(), "ids the resolver does not know are skipped");
+        assertSame(replacement, history.getHistory().getFirst());
+    }
+
+    @Test
+    void managerHistoryShowsReplacedTask() {
+        TaskManager tm = new InMemoryTaskManager();
+        int id = tm.addNewTask(new Task("A", "d", TaskStatus.NEW));
+        tm.getTask(id);
+
+        Task replacement = new Task("B", "d", TaskStatus.DONE);
+        replacement.setId(id);
+        tm.updateTask(replacement);
+
+        assertSame(replacement, tm.getHistory().getFirst());
+    }
+
+    @Test
+    void cascadingDeletesClearOnlyTheirEntries() {
+        TaskManager tm = new InMemoryTaskManager();
+        int taskId = tm.addNewTask(new Task("A", "d", TaskStatus.NEW));
+        int epicId = tm.addNewEpic(new Epic("E", "d"));
+        int otherEpicId = tm.addNewEpic(new Epic("E2", "d"));
+        int subtaskId = tm.addNewSubtask(new Subtask("S", "d", TaskStatus.NEW, epicId));
+        int otherSubtaskId = tm.addNewSubtask(new Subtask("S2", "d", TaskStatus.NEW, otherEpicId));
+        tm.getTask(taskId);
+        tm.getEpic(epicId);
+        tm.getSubtask(subtaskId);
+        tm.getEpic(otherEpicId);
+        tm.getSubtask(otherSubtaskId);
+
+        tm.deleteEpic(epicId);
+        assertEquals(List.of(taskId, otherEpicId, otherSubtaskId), ids(tm.getHistory()));
+
+        tm.deleteSubtasks();
+        assertEquals(List.of(taskId, otherEpicId), ids(tm.getHistory()));
+
+        tm.deleteTasks();
+        assertEquals(List.of(otherEpicId), ids(tm.getHistory()));
+    }
+
+    @Test
+    void nodeHistoryRemovesByType() {
+        HistoryManager history = new InMemoryHistoryManager();
+        Task t1 = task(1);
+        Epic epic = new Epic("E", "desc");
+        epic.setId(2);
+        history.add(t1);
+        history.add(epic);
+        history.add(task(3));
+
+        history.removeAll(TaskType.TASK);
+
+        assertEquals(List.of(epic), history.getHistory());
+    }
+
+    private static List<Integer> ids(List<Task> tasks) {
+        return tasks.stream().map(Task::getId).toList();
+    }
+
+    private static Task task(int id) {
+        Task task = new Task("T" + id, "desc", TaskStatus.NEW);
+        task.setId(id);
+        return task;
+    }
+}
@@ -0,0 +1,9 @@
+package ru.yandex.javacourse.schedule.manager;
+
+public class InMemoryTaskManagerOpenAddressingTest extends TaskManagerTest<InMemoryTaskManager> {
+
+    @Override
+    protected InMemoryTaskManager createManager() {
+        return new InMemoryTaskManager(StorageType.OPEN_ADDRESSING);
+    }
+}
@@ -0,0 +1,70 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.javacourse.schedule.tasks.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelCsvReaderTest {
+
+    private static final String HEADER = "id,type,name,status,description,epic,duration,startTime";
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testRowsSpanningManyChunksAreReadInOrder() throws IOException {
+        Path file = tempDir.resolve("large.csv");
+        int count = 60_000;
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(HEADER + "\r\n");
+            writer.write("1,EPIC,Эпик,NEW,описание эпика,,,\r\n");
+            for (int id = 2; id <= count; id++) {
+                // start times run backwards, so the time index has to sort them
+                writer.write(id + ",SUBTASK,Подзадача " + id + ",DONE,\"многострочное,\n\"\"описание\"\"\",1,1,"
+                        + base.minusMinutes(id * 2L) + "\r\n");
+                if (id % 1000 == 0) {
+                    writer.write("\r\n");
+                }
+            }
+        }
+        assertTrue(Files.size(file) > 2L << 20, "file spans several chunks");
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file.toFile());
+
+        assertEquals(count - 1, loaded.getSubtasks().size());
+        assertEquals(count - 1, loaded.getEpic(1).getSubtaskIds().size());
+        assertEquals(TaskStatus.DONE, loaded.getEpic(1).getStatus());
+        assertEquals("Подзадача 2", loaded.getSubtask(2).getName());
+        assertEquals("многострочное,\n\"описание\"", loaded.getSubtask(count).getDescription());
+        List<Task> prioritized = loaded.getPrioritizedTasks();
+        assertEquals(count - 1, prioritized.size());
+        assertEquals(count, prioritized.getFirst().getId());
+        assertEquals(2, prioritized.getLast().getId());
+        assertEquals(count + 1, loaded.addNewTask(new Task("T", "D", TaskStatus.NEW)));
+    }
+
+    @Test
+    void testWrongHeaderIsRejected() throws IOException {
+        Path file = tempDir.resolve("bad.csv");
+        Files.writeString(file, "id,name\n1,TASK,T,NEW,D,,,\n", StandardCharsets.UTF_8);
+        assertThrows(ManagerSaveException.class, () -> FileBackedTaskManager.loadFromFile(file.toFile()));
+    }
+
+    @Test
+    void testHeaderOnlyFileIsEmpty() throws IOException {
+        Path file = tempDir.resolve("header.csv");
+        Files.writeString(file, HEADER, StandardCharsets.UTF_8);
+        assertTrue(ParallelCsvReader.read(file).isEmpty());
+    }
+}
@@ -0,0 +1,104 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.javacourse.schedule.tasks.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentTaskManagerTest extends TaskManagerTest<PersistentTaskManager> {
+
+    @Override
+    protected PersistentTaskManager createManager() {
+        return new PersistentTaskManager();
+    }
+
+    /**
+     * Tasks read back are immutable, so the change is made on a copy.
+     */
+    @Test
+    @Override
+    void epicStatusFollowsSubtaskMutatedInPlace() {
+        checkEpicStatusFollowsSubtaskCopies();
+    }
+
+    @Test
+    void readsShareImmutableTasks() {
+        PersistentTaskManager manager = new PersistentTaskManager();
+        Task input = new Task("A", "d", TaskStatus.NEW);
+        int id = manager.addNewTask(input);
+        input.setName("changed by caller");
+
+        Task task = manager.getTask(id);
+        assertEquals(id, input.getId());
+        assertEquals("A", task.getName());
+        assertSame(task, manager.getTask(id));
+        assertSame(task, manager.getTasks().getFirst());
+        assertThrows(UnsupportedOperationException.class, () -> task.setStatus(TaskStatus.DONE));
+
+        manager.updateTask(task.withStatus(TaskStatus.DONE));
+        assertEquals(TaskStatus.DONE, manager.getTask(id).getStatus());
+        assertEquals(TaskStatus.NEW, task.getStatus());
+    }
+
+    @Test
+    void snapshotKeepsTheBoardAndSharesUnchangedTasks() {
+        PersistentTaskManager manager = new PersistentTaskManager();
+        int taskId = manager.addNewTask(new Task("A", "d", TaskStatus.NEW));
+        int epicId = manager.addNewEpic(new Epic("E", "d"));
+        int subtaskId = manager.addNewSubtask(new Subtask("S", "d", TaskStatus.NEW, epicId));
+        PersistentTaskManager.Board before = manager.snapshot();
+
+        manager.updateSubtask(manager.getSubtask(subtaskId).withStatus(TaskStatus.DONE));
+        manager.deleteTask(taskId);
+        PersistentTaskManager.Board after = manager.snapshot();
+
+        assertEquals(TaskStatus.NEW, before.epics().get(epicId).getStatus());
+        assertEquals(TaskStatus.DONE, after.epics().get(epicId).getStatus(), "epic status follows its subtasks");
+        assertNotNull(before.tasks().get(taskId));
+        assertNull(after.tasks().get(taskId));
+        assertSame(after, manager.snapshot(), "reading does not rebuild the board");
+    }
+
+    @Test
+    void batchIsPublishedAsAWhole() throws InterruptedException {
+        PersistentTaskManager manager = new PersistentTaskManager();
+        int epicId = manager.addNewEpic(new Epic("E", "d"));
+        PersistentTaskManager.Board before = manager.snapshot();
+        PersistentTaskManager.Board[] seen = new PersistentTaskManager.Board[1];
+        Thread reader = new Thread(() -> seen[0] = manager.snapshot());
+
+        manager.inBatch(() -> {
+            Integer subtaskId = manager.addNewSubtask(new Subtask("S", "d", TaskStatus.IN_PROGRESS, epicId,
+                    Duration.ofMinutes(15), LocalDateTime.of(2025, 1, 1, 9, 0)));
+            assertNotNull(manager.getSubtask(subtaskId), "the batch reads its own changes");
+            assertEquals(List.of(subtaskId), manager.getPrioritizedTasks().stream().map(Task::getId).toList());
+            reader.start();
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertSame(before, seen[0], "other threads see the batch only once it ends");
+        assertEquals(1, manager.snapshot().subtasks().size());
+        assertEquals(TaskStatus.IN_PROGRESS, manager.getEpic(epicId).getStatus());
+    }
+
+    @Test
+    void deletedTasksLeaveTheHistory() {
+        PersistentTaskManager manager = new PersistentTaskManager();
+        int first = manager.addNewTask(new Task("A", "d", TaskStatus.NEW));
+        int second = manager.addNewTask(new Task("B", "d", TaskStatus.NEW));
+        manager.getTask(first);
+        manager.getTask(second);
+        manager.deleteTask(first);
+
+        assertEquals(List.of(manager.getTask(second)), manager.getHistory());
+        assertSame(manager.getTask(second), manager.getHistory().getFirst());
+    }
+}
@@ -0,0 +1,130 @@
+package ru.yandex.javacourse.schedule.manager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.javacourse.schedule.tasks.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StoredTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
+
+    @TempDir
+    private Path tempDir;
+
+    @Override
+    protected InMemoryTaskManager createManager() {
+        return Managers.getStored(StoreType.LOG, tempDir.resolve("tasks.log"));
+    }
+
+    @Test
+    void testEveryStoreRestoresTheManager() {
+        for (StoreType storeType : List.of(StoreType.CSV, StoreType.BINARY, StoreType.LOG)) {
+            Path file = tempDir.resolve("state." + storeType.name().toLowerCase());
+            InMemoryTaskManager manager = Managers.getStored(storeType, file);
+            int taskId = manager.addNewTask(new Task("T, \"1\"", "D", TaskStatus.NEW));
+            int removedId = manager.addNewTask(new Task("R", "D", TaskStatus.NEW));
+            int epicId = manager.addNewEpic(new Epic("E", "D"));
+            int subtaskId = manager.addNewSubtask(new Subtask("S", "D", TaskStatus.DONE, epicId,
+                    Duration.ofMinutes(30), LocalDateTime.of(2025, 2, 1, 9, 0)));
+            manager.addNewSubtasks(List.of(new Subtask("S2", "D", TaskStatus.DONE, epicId)));
+            Task updated = new Task("T2", "D", TaskStatus.IN_PROGRESS);
+            updated.setId(taskId);
+            manager.updateTask(updated);
+            manager.deleteTask(removedId);
+            manager.close();
+
+            InMemoryTaskManager restored = Managers.getStored(storeType, file);
+            assertEquals("T2", restored.getTask(taskId).getName(), storeType.name());
+            assertNull(restored.getTask(removedId), storeType.name());
+            assertEquals(TaskStatus.DONE, restored.getEpic(epicId).getStatus(), storeType.name());
+            assertEquals(2, restored.getEpicSubtasks(epicId).size(), storeType.name());
+            assertEquals(subtaskId, restored.getPrioritizedTasks().getFirst().getId(), storeType.name());
+            assertTrue(restored.addNewTask(new Task("N", "D", TaskStatus.NEW)) > subtaskId, storeType.name());
+            restored.close();
+        }
+    }
+
+    @Test
+    void testCascadesAndClearsReachTheStore() {
+        Path file = tempDir.resolve("cascade.log");
+        InMemoryTaskManager manager = Managers.getStored(StoreType.LOG, file);
+        int keptEpic = manager.addNewEpic(new Epic("E1", "D"));
+        int removedEpic = manager.addNewEpic(new Epic("E2", "D"));
+        manager.addNewSubtask(new Subtask("S1", "D", TaskStatus.NEW, keptEpic));
+        manager.addNewSubtask(new Subtask("S2", "D", TaskStatus.NEW, removedEpic));
+        manager.deleteEpic(removedEpic);
+        manager.addNewTasks(List.of(new Task("T1", "D", TaskStatus.NEW), new Task("T2", "D", TaskStatus.NEW)));
+        manager.deleteTasks();
+        manager.close();
+
+        InMemoryTaskManager restored = Managers.getStored(StoreType.LOG, file);
+        assertEquals(List.of(keptEpic), restored.getEpics().stream().map(Task::getId).toList());
+        assertEquals(1, restored.getSubtasks().size());
+        assertTrue(restored.getTasks().isEmpty());
+        restored.deleteEpics();
+        restored.close();
+        assertTrue(Managers.getStored(StoreType.LOG, file).getEpics().isEmpty());
+    }
+
+    @Test
+    void testSnapshotStoreFileIsReadableByFileBackedManager() {
+        Path file = tempDir.resolve("shared.csv");
+        InMemoryTaskManager manager = Managers.getStored(StoreType.CSV, file);
+        int epicId = manager.addNewEpic(new Epic("E", "D"));
+        manager.addNewSubtask(new Subtask("S", "D", TaskStatus.IN_PROGRESS, epicId));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file.toFile());
+        assertEquals(TaskStatus.IN_PROGRESS, loaded.getEpic(epicId).getStatus());
+    }
+
+    @Test
+    void testBatchIsWrittenOnce() throws IOException {
+        Path file = tempDir.resolve("batch.csv");
+        InMemoryTaskManager manager = Managers.getStored(StoreType.CSV, file);
+        manager.addNewTasks(List.of(new Task("T1", "D", TaskStatus.NEW), new Task("T2", "D", TaskStatus.NEW)));
+        assertEquals(3, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    void testStoresAreFileBackedConfigurations() {
+        Path file = tempDir.resolve("journaled.csv");
+        InMemoryTaskManager manager = Managers.getStored(StoreType.LOG, file);
+        manager.addNewTask(new Task("T", "D", TaskStatus.NEW));
+
+        assertInstanceOf(FileBackedTaskManager.class, manager);
+        assertTrue(Files.exists(FileBackedTaskManager.journalPathOf(file)), "LOG appends to the journal");
+        assertEquals(1, FileBackedTaskManager.loadFromFile(file.toFile()).getTasks().size());
+        assertFalse(Managers.getStored(StoreType.MEMORY, file) instanceof FileBackedTaskManager);
+        manager.close();
+    }
+
+    @Test
+    void testStoreIsPickedByProperty() {
+        String previous = System.getProperty(Managers.STORE_PROPERTY);
+        try {
+            System.setProperty(Managers.STORE_PROPERTY, "binary");
+            Path file = tempDir.resolve("picked.bin");
+            Managers.getStored(file).addNewTask(new Task("T", "D", TaskStatus.NEW));
+            assertTrue(BinarySnapshot.isBinary(file));
+
+            System.setProperty(Managers.STORE_PROPERTY, "nope");
+            assertThrows(IllegalArgumentException.class, () -> Managers.getStored(file));
+        } catch (IOException e) {
+            fail(e);
+        } finally {
+            if (previous == null) {
+                System.clearProperty(Managers.STORE_PROPERTY);
+            } else {
+                System.setProperty(Managers.STORE_PROPERTY, previous);
+            }
+        }
+    }
+}
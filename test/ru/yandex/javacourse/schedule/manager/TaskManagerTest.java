@@ -6,7 +6,10 @@ import ru.yandex.javacourse.schedule.tasks.*;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static ru.yandex.javacourse.schedule.tasks.TaskStatus.*;
@@ -132,4 +135,312 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertEquals(t2, prioritized.get(0));
         assertEquals(t1, prioritized.get(1));
     }
+
+    @Test
+    void overlapIsDetectedAgainstEarlierLongTask() {
+        manager.addNewTask(new Task("Long", "desc", NEW,
+                Duration.ofMinutes(240), LocalDateTime.of(2025, 11, 6, 8, 0)));
+        manager.addNewTask(new Task("Short", "desc", NEW,
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 11, 6, 13, 0)));
+
+        Task inside = new Task("Inside", "desc", NEW,
+                Duration.ofMinutes(15), LocalDateTime.of(2025, 11, 6, 11, 0));
+        assertThrows(ManagerTimeIntersectionException.class, () -> manager.addNewTask(inside));
+
+        Task touching = new Task("Touching", "desc", NEW,
+                Duration.ofMinutes(60), LocalDateTime.of(2025, 11, 6, 12, 0));
+        assertDoesNotThrow(() -> manager.addNewTask(touching));
+    }
+
+    @Test
+    void updatingTaskDoesNotIntersectWithItself() {
+        Task t = new Task("T", "desc", NEW,
+                Duration.ofMinutes(60), LocalDateTime.of(2025, 11, 6, 10, 0));
+        int id = manager.addNewTask(t);
+
+        Task moved = new Task("T", "desc", DONE,
+                Duration.ofMinutes(60), LocalDateTime.of(2025, 11, 6, 10, 30));
+        moved.setId(id);
+        assertDoesNotThrow(() -> manager.updateTask(moved));
+        assertEquals(List.of(moved), manager.getPrioritizedTasks());
+    }
+
+    @Test
+    void subtaskOverlappingTaskShouldThrowException() {
+        int epicId = manager.addNewEpic(new Epic("Epic", "desc"));
+        manager.addNewTask(new Task("T", "desc", NEW,
+                Duration.ofMinutes(60), LocalDateTime.of(2025, 11, 6, 10, 0)));
+
+        Subtask sub = new Subtask("S", "desc", NEW, epicId,
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 11, 6, 9, 45));
+        assertThrows(ManagerTimeIntersectionException.class, () -> manager.addNewSubtask(sub));
+    }
+
+    @Test
+    void findFreeSlotSkipsBusyIntervals() {
+        LocalDateTime day = LocalDateTime.of(2025, 11, 6, 9, 0);
+        manager.addNewTask(new Task("T1", "desc", NEW, Duration.ofMinutes(60), day));
+        manager.addNewTask(new Task("T2", "desc", NEW, Duration.ofMinutes(60), day.plusMinutes(90)));
+        manager.addNewTask(new Task("T3", "desc", NEW, Duration.ofMinutes(60), day.plusMinutes(180)));
+
+        assertEquals(Optional.of(day.plusMinutes(60)),
+                manager.findFreeSlot(Duration.ofMinutes(30), day.plusMinutes(15), null));
+        assertEquals(Optional.of(day.plusMinutes(240)),
+                manager.findFreeSlot(Duration.ofMinutes(45), day, null));
+        assertEquals(Optional.empty(),
+                manager.findFreeSlot(Duration.ofMinutes(45), day, day.plusMinutes(240)));
+    }
+
+    @Test
+    void findFreeSlotsReturnsOneStartPerGap() {
+        LocalDateTime day = LocalDateTime.of(2025, 11, 6, 9, 0);
+        manager.addNewTask(new Task("T1", "desc", NEW, Duration.ofMinutes(60), day));
+        manager.addNewTask(new Task("T2", "desc", NEW, Duration.ofMinutes(60), day.plusMinutes(90)));
+
+        List<LocalDateTime> slots = manager.findFreeSlots(Duration.ofMinutes(30), day.minusMinutes(30), null, 5);
+        assertEquals(List.of(day.minusMinutes(30), day.plusMinutes(60), day.plusMinutes(150)), slots);
+
+        Task fitted = new Task("Fitted", "desc", NEW, Duration.ofMinutes(30), slots.get(1));
+        assertDoesNotThrow(() -> manager.addNewTask(fitted));
+    }
+
+    @Test
+    void prioritizedRangeReturnsOnlyTasksStartingInWindow() {
+        LocalDateTime day = LocalDateTime.of(2025, 11, 6, 0, 0);
+        Task yesterday = new Task("Y", "desc", NEW, Duration.ofMinutes(30), day.minusHours(2));
+        Task morning = new Task("M", "desc", NEW, Duration.ofMinutes(30), day.plusHours(9));
+        Task evening = new Task("E", "desc", NEW, Duration.ofMinutes(30), day.plusHours(20));
+        Task tomorrow = new Task("T", "desc", NEW, Duration.ofMinutes(30), day.plusDays(1));
+        manager.addNewTask(evening);
+        manager.addNewTask(tomorrow);
+        manager.addNewTask(morning);
+        manager.addNewTask(yesterday);
+
+        assertEquals(List.of(morning, evening), manager.getPrioritizedTasks(day, day.plusDays(1)));
+        assertEquals(List.of(yesterday, morning, evening), manager.getPrioritizedTasks(null, day.plusDays(1)));
+        assertEquals(List.of(tomorrow), manager.getPrioritizedTasks(day.plusDays(1), null));
+    }
+
+    @Test
+    void prioritizedIteratorStopsAtLimit() {
+        LocalDateTime day = LocalDateTime.of(2025, 11, 6, 9, 0);
+        for (int i = 0; i < 5; i++) {
+            manager.addNewTask(new Task("T" + i, "desc", NEW, Duration.ofMinutes(30), day.plusHours(i)));
+        }
+
+        Iterator<Task> cursor = manager.iteratePrioritizedTasks(day.plusHours(1), null, 2);
+        assertEquals("T1", cursor.next().getName());
+        assertEquals("T2", cursor.next().getName());
+        assertFalse(cursor.hasNext());
+        assertThrows(NoSuchElementException.class, cursor::next);
+    }
+
+    @Test
+    void epicTimeFollowsSubtaskChanges() {
+        int epicId = manager.addNewEpic(new Epic("Epic", "desc"));
+        LocalDateTime day = LocalDateTime.of(2025, 11, 6, 9, 0);
+        int s1 = manager.addNewSubtask(new Subtask("S1", "d", NEW, epicId, Duration.ofMinutes(30), day));
+        int s2 = manager.addNewSubtask(new Subtask("S2", "d", NEW, epicId, Duration.ofMinutes(60), day.plusHours(2)));
+        manager.addNewSubtask(new Subtask("S3", "d", NEW, epicId));
+
+        Epic epic = manager.getEpic(epicId);
+        assertEquals(Duration.ofMinutes(90), epic.getDuration());
+        assertEquals(day, epic.getStartTime());
+        assertEquals(day.plusHours(3), epic.getEndTime());
+
+        // read again after each change, since managers may hand out copies
+        manager.deleteSubtask(s2);
+        epic = manager.getEpic(epicId);
+        assertEquals(Duration.ofMinutes(30), epic.getDuration());
+        assertEquals(day.plusMinutes(30), epic.getEndTime());
+
+        manager.deleteSubtask(s1);
+        epic = manager.getEpic(epicId);
+        assertNull(epic.getDuration());
+        assertNull(epic.getStartTime());
+        assertNull(epic.getEndTime());
+    }
+
+    @Test
+    void epicStatusFollowsSubtaskMutatedInPlace() {
+        int epicId = manager.addNewEpic(new Epic("Epic", "desc"));
+        int s1 = manager.addNewSubtask(new Subtask("S1", "d", NEW, epicId));
+        int s2 = manager.addNewSubtask(new Subtask("S2", "d", NEW, epicId));
+
+        for (int id : List.of(s1, s2)) {
+            Subtask subtask = manager.getSubtask(id);
+            subtask.setStatus(DONE);
+            manager.updateSubtask(subtask);
+        }
+        assertEquals(DONE, manager.getEpic(epicId).getStatus());
+
+        Subtask subtask = manager.getSubtask(s1);
+        subtask.setStatus(NEW);
+        manager.updateSubtask(subtask);
+        assertEquals(IN_PROGRESS, manager.getEpic(epicId).getStatus());
+
+        manager.deleteSubtasks();
+        assertEquals(NEW, manager.getEpic(epicId).getStatus());
+    }
+
+    @Test
+    void addNewTasksRejectsWholeBatchOnOverlap() {
+        LocalDateTime day = LocalDateTime.of(2025, 11, 6, 9, 0);
+        List<Task> batch = List.of(
+                new Task("T1", "d", NEW, Duration.ofMinutes(60), day),
+                new Task("T2", "d", NEW),
+                new Task("T3", "d", NEW, Duration.ofMinutes(60), day.plusMinutes(30)));
+
+        assertThrows(ManagerTimeIntersectionException.class, () -> manager.addNewTasks(batch));
+        assertTrue(manager.getTasks().isEmpty());
+
+        List<Integer> ids = manager.addNewTasks(batch.subList(0, 2));
+        assertEquals(2, ids.size());
+        assertEquals(2, manager.getTasks().size());
+        assertThrows(ManagerTimeIntersectionException.class, () -> manager.addNewTasks(List.of(batch.get(2))));
+    }
+
+    @Test
+    void addNewSubtasksUpdatesEpicAndSkipsMissingEpic() {
+        int epicId = manager.addNewEpic(new Epic("Epic", "desc"));
+        LocalDateTime day = LocalDateTime.of(2025, 11, 6, 9, 0);
+        List<Integer> ids = manager.addNewSubtasks(List.of(
+                new Subtask("S1", "d", DONE, epicId, Duration.ofMinutes(30), day),
+                new Subtask("S2", "d", NEW, 999),
+                new Subtask("S3", "d", DONE, epicId, Duration.ofMinutes(30), day.plusHours(1))));
+
+        assertNotNull(ids.get(0));
+        assertNull(ids.get(1));
+        assertNotNull(ids.get(2));
+        Epic epic = manager.getEpic(epicId);
+        assertEquals(DONE, epic.getStatus());
+        assertEquals(Duration.ofMinutes(60), epic.getDuration());
+        assertEquals(day.plusMinutes(90), epic.getEndTime());
+    }
+
+    @Test
+    void updateAllCanSwapTaskTimes() {
+        LocalDateTime day = LocalDateTime.of(2025, 11, 6, 9, 0);
+        int first = manager.addNewTask(new Task("A", "d", NEW, Duration.ofMinutes(60), day));
+        int second = manager.addNewTask(new Task("B", "d", NEW, Duration.ofMinutes(60), day.plusHours(1)));
+
+        Task movedFirst = new Task("A", "d", DONE, Duration.ofMinutes(60), day.plusHours(1));
+        movedFirst.setId(first);
+        Task movedSecond = new Task("B", "d", DONE, Duration.ofMinutes(60), day);
+        movedSecond.setId(second);
+        manager.updateAll(List.of(movedFirst, movedSecond));
+
+        assertEquals(List.of(movedSecond, movedFirst), manager.getPrioritizedTasks());
+        assertEquals(DONE, manager.getTask(first).getStatus());
+    }
+
+    @Test
+    void deleteAllRemovesMixedIdsAndRefreshesEpics() {
+        int taskId = manager.addNewTask(new Task("T", "d", NEW));
+        int epicId = manager.addNewEpic(new Epic("Epic", "desc"));
+        int doneId = manager.addNewSubtask(new Subtask("S1", "d", DONE, epicId));
+        int newId = manager.addNewSubtask(new Subtask("S2", "d", NEW, epicId));
+        int otherEpicId = manager.addNewEpic(new Epic("Other", "desc"));
+        manager.addNewSubtask(new Subtask("S3", "d", NEW, otherEpicId));
+
+        manager.deleteAll(List.of(taskId, newId, otherEpicId, 12345));
+
+        assertTrue(manager.getTasks().isEmpty());
+        assertEquals(List.of(doneId), manager.getSubtasks().stream().map(Task::getId).toList());
+        assertEquals(List.of(epicId), manager.getEpics().stream().map(Task::getId).toList());
+        assertEquals(DONE, manager.getEpic(epicId).getStatus());
+    }
+
+    @Test
+    void reversedRangeIsRejected() {
+        LocalDateTime day = LocalDateTime.of(2025, 11, 6, 9, 0);
+        manager.addNewTask(new Task("T", "d", NEW, Duration.ofMinutes(30), day));
+
+        assertThrows(IllegalArgumentException.class, () -> manager.getPrioritizedTasks(day.plusHours(1), day));
+        assertThrows(IllegalArgumentException.class,
+                () -> manager.iteratePrioritizedTasks(day.plusHours(1), day, 10));
+        assertTrue(manager.getPrioritizedTasks(day, day).isEmpty());
+    }
+
+    @Test
+    void calendarMergesTasksAndSubtasksAndClearsOneType() {
+        LocalDateTime day = LocalDateTime.of(2025, 11, 6, 9, 0);
+        int epicId = manager.addNewEpic(new Epic("Epic", "desc"));
+        int firstTask = manager.addNewTask(new Task("T1", "d", NEW, Duration.ofMinutes(60), day));
+        int subtaskId = manager.addNewSubtask(new Subtask("S", "d", NEW, epicId, Duration.ofMinutes(60),
+                day.plusHours(1)));
+        int secondTask = manager.addNewTask(new Task("T2", "d", NEW, Duration.ofMinutes(60), day.plusHours(3)));
+
+        assertEquals(List.of(firstTask, subtaskId, secondTask),
+                manager.getPrioritizedTasks().stream().map(Task::getId).toList());
+        assertEquals(List.of(subtaskId, secondTask), manager.getPrioritizedTasks(day.plusHours(1), null).stream()
+                .map(Task::getId).toList());
+        assertEquals(List.of(day.plusHours(2)), manager.findFreeSlots(Duration.ofMinutes(60), day, null, 1));
+        assertThrows(ManagerTimeIntersectionException.class, () -> manager.addNewTask(
+                new Task("X", "d", NEW, Duration.ofMinutes(30), day.plusMinutes(90))));
+
+        manager.deleteTasks();
+        assertEquals(List.of(subtaskId), manager.getPrioritizedTasks().stream().map(Task::getId).toList());
+        assertEquals(Optional.of(day), manager.findFreeSlot(Duration.ofMinutes(60), day, null));
+
+        manager.deleteSubtasks();
+        assertTrue(manager.getPrioritizedTasks().isEmpty());
+        manager.addNewTask(new Task("Y", "d", NEW, Duration.ofMinutes(30), day.plusMinutes(90)));
+    }
+
+    @Test
+    void statusIndexFollowsChangesAndEpicStatus() {
+        int taskId = manager.addNewTask(new Task("T", "d", NEW));
+        manager.addNewTask(new Task("T2", "d", DONE));
+        int epicId = manager.addNewEpic(new Epic("Epic", "desc"));
+        int s1 = manager.addNewSubtask(new Subtask("S1", "d", NEW, epicId));
+        int s2 = manager.addNewSubtask(new Subtask("S2", "d", NEW, epicId));
+
+        assertEquals(List.of(taskId), ids(manager.getTasksByStatus(TaskType.TASK, NEW)));
+        assertEquals(2, manager.countByStatus(TaskType.SUBTASK, NEW));
+        assertEquals(List.of(epicId), ids(manager.getTasksByStatus(TaskType.EPIC, NEW)));
+
+        manager.updateTask(new Task(taskId, "T", "d", IN_PROGRESS));
+        manager.updateSubtask(new Subtask(s1, "S1", "d", DONE, epicId));
+        assertEquals(0, manager.countByStatus(TaskType.TASK, NEW));
+        assertEquals(List.of(taskId), ids(manager.getTasksByStatus(TaskType.TASK, IN_PROGRESS)));
+        assertEquals(List.of(s1), ids(manager.getTasksByStatus(TaskType.SUBTASK, DONE)));
+        assertEquals(1, manager.countByStatus(TaskType.EPIC, IN_PROGRESS), "recomputed epic status is indexed");
+
+        manager.deleteSubtask(s2);
+        assertEquals(1, manager.countByStatus(TaskType.EPIC, DONE));
+        manager.deleteTask(taskId);
+        assertEquals(0, manager.countByStatus(TaskType.TASK, IN_PROGRESS));
+        assertEquals(1, manager.countByStatus(TaskType.TASK, DONE));
+
+        manager.deleteEpics();
+        assertEquals(0, manager.countByStatus(TaskType.SUBTASK, DONE));
+        assertEquals(0, manager.countByStatus(TaskType.EPIC, DONE));
+        manager.deleteTasks();
+        assertTrue(manager.getTasksByStatus(TaskType.TASK, DONE).isEmpty());
+    }
+
+    /**
+     * Variant of {@link #epicStatusFollowsSubtaskMutatedInPlace()} for managers that return immutable tasks.
+     */
+    protected void checkEpicStatusFollowsSubtaskCopies() {
+        int epicId = manager.addNewEpic(new Epic("Epic", "desc"));
+        int s1 = manager.addNewSubtask(new Subtask("S1", "d", NEW, epicId));
+        int s2 = manager.addNewSubtask(new Subtask("S2", "d", NEW, epicId));
+
+        for (int id : List.of(s1, s2)) {
+            manager.updateSubtask(manager.getSubtask(id).withStatus(DONE));
+        }
+        assertEquals(DONE, manager.getEpic(epicId).getStatus());
+
+        manager.updateSubtask(manager.getSubtask(s1).withStatus(NEW));
+        assertEquals(IN_PROGRESS, manager.getEpic(epicId).getStatus());
+
+        manager.deleteSubtasks();
+        assertEquals(NEW, manager.getEpic(epicId).getStatus());
+    }
+
+    private static List<Integer> ids(List<? extends Task> tasks) {
+        return tasks.stream().map(Task::getId).toList();
+    }
 }
@@ -66,4 +66,21 @@ public class EpicTest {
         assertTrue(manager.getHistory().isEmpty(), "History should be cleared as well");
     }
 
+
+    @Test
+    public void testSnapshotKeepsItsSubtaskIdsWhileTheCopyChanges() {
+        Epic epic = new Epic(1, "Epic", "d");
+        epic.addSubtaskId(2);
+        epic.addSubtaskId(3);
+
+        Epic frozen = epic.snapshot();
+        Epic copy = frozen.copy();
+        copy.removeSubtask(2);
+        copy.addSubtaskId(4);
+
+        assertEquals(List.of(2, 3), frozen.getSubtaskIds(), "snapshot must not see changes of its copies");
+        assertEquals(List.of(3, 4), copy.getSubtaskIds());
+        copy.cleanSubtaskIds();
+        assertEquals(List.of(2, 3), epic.getSubtaskIds());
+    }
 }
@@ -4,6 +4,10 @@ import org.junit.jupiter.api.Test;
 import ru.yandex.javacourse.schedule.manager.InMemoryTaskManager;
 import ru.yandex.javacourse.schedule.manager.TaskManager;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class TaskTest {
@@ -58,4 +62,53 @@ public class TaskTest {
         }
         assertFalse(inHistory, "Not in history");
     }
+
+    @Test
+    void endTimeAndMinuteKeysFollowTheSetters() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0, 30);
+        Task task = new Task("T", "d", TaskStatus.NEW, Duration.ofMinutes(90), start);
+
+        assertEquals(start.plusMinutes(90), task.getEndTime());
+        assertSame(task.getEndTime(), task.getEndTime(), "the end is not recomputed on every call");
+        assertEquals(Task.epochMinute(LocalDateTime.of(2025, 1, 1, 10, 0)), task.getStartMinute());
+        assertEquals(task.getStartMinute() + 90, task.getEndMinute());
+
+        task.setDuration(Duration.ofMinutes(10));
+        assertEquals(start.plusMinutes(10), task.getEndTime());
+        task.setStartTime(null);
+        assertNull(task.getEndTime());
+        assertEquals(Task.NO_TIME, task.getStartMinute());
+        assertEquals(Task.NO_TIME, task.getEndMinute());
+        assertEquals(-1, Task.epochMinute(LocalDateTime.of(1969, 12, 31, 23, 59, 59)));
+    }
+
+    @Test
+    void snapshotIsImmutableAndWithCopiesChangeOneField() {
+        Subtask subtask = new Subtask(3, "S", "d", TaskStatus.NEW, 7);
+        Subtask frozen = subtask.snapshot();
+
+        assertTrue(frozen.isFrozen());
+        assertFalse(subtask.isFrozen());
+        assertSame(frozen, frozen.snapshot());
+        assertThrows(UnsupportedOperationException.class, () -> frozen.setStatus(TaskStatus.DONE));
+
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        Subtask changed = frozen.withStatus(TaskStatus.DONE).withTime(Duration.ofMinutes(30), start);
+        assertTrue(changed.isFrozen());
+        assertEquals(TaskStatus.DONE, changed.getStatus());
+        assertEquals(start.plusMinutes(30), changed.getEndTime());
+        assertEquals(7, changed.getEpicId());
+        assertEquals(TaskStatus.NEW, frozen.getStatus());
+
+        Subtask copy = changed.copy();
+        copy.setName("S2");
+        assertEquals("S", changed.getName());
+
+        Epic epic = new Epic(7, "E", "d");
+        epic.addSubtaskId(3);
+        Epic frozenEpic = epic.snapshot();
+        epic.addSubtaskId(4);
+        assertEquals(List.of(3), frozenEpic.getSubtaskIds());
+        assertThrows(UnsupportedOperationException.class, () -> frozenEpic.addSubtaskId(5));
+    }
 }
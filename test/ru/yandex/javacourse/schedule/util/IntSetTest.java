@@ -0,0 +1,45 @@
+package ru.yandex.javacourse.schedule.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntSetTest {
+
+    @Test
+    void keepsInsertionOrderWithoutRemovals() {
+        IntSet set = new IntSet();
+        set.add(3);
+        set.add(1);
+        set.add(2);
+        set.add(1);
+        assertEquals(List.of(3, 1, 2), set.toList());
+    }
+
+    @Test
+    void behavesLikeHashSetUnderRandomOperations() {
+        IntSet set = new IntSet();
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 50_000; i++) {
+            int value = random.nextInt(1_000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+
+        for (int value = 0; value < 1_000; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+        assertEquals(expected, new HashSet<>(set.toList()));
+    }
+}
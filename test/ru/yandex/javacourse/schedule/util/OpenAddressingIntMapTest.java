@@ -0,0 +1,54 @@
+package ru.yandex.javacourse.schedule.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpenAddressingIntMapTest {
+
+    @Test
+    void behavesLikeHashMapUnderRandomOperations() {
+        OpenAddressingIntMap<String> map = new OpenAddressingIntMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(2_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+
+        for (int key = -1_000; key < 1_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+        }
+        List<Integer> keys = new ArrayList<>();
+        map.forEachKey(keys::add);
+        assertEquals(expected.size(), keys.size());
+        assertTrue(expected.keySet().containsAll(keys));
+        assertTrue(map.values().containsAll(expected.values()));
+    }
+
+    @Test
+    void clearEmptiesMap() {
+        OpenAddressingIntMap<String> map = new OpenAddressingIntMap<>();
+        for (int i = 0; i < 100; i++) {
+            map.put(i, "v" + i);
+        }
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(5));
+        assertFalse(map.values().iterator().hasNext());
+    }
+}
@@ -0,0 +1,92 @@
+package ru.yandex.javacourse.schedule.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentIntMapTest {
+
+    @Test
+    void behavesLikeHashMapUnderRandomOperations() {
+        PersistentIntMap<String> map = PersistentIntMap.empty();
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(24);
+
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(4) == 0 ? random.nextInt() : random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.remove(key);
+            } else {
+                String value = "v" + i;
+                expected.put(key, value);
+                map = map.put(key, value);
+            }
+            assertEquals(expected.size(), map.size());
+            assertEquals(expected.get(key), map.get(key));
+        }
+
+        for (Map.Entry<Integer, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        assertEquals(expected.size(), map.values().size());
+    }
+
+    @Test
+    void changesLeaveEarlierVersionsIntact() {
+        PersistentIntMap<String> empty = PersistentIntMap.empty();
+        PersistentIntMap<String> one = empty.put(1, "a");
+        PersistentIntMap<String> two = one.put(33, "b");
+        PersistentIntMap<String> replaced = two.put(1, "c");
+        PersistentIntMap<String> removed = replaced.remove(33);
+
+        assertTrue(empty.isEmpty());
+        assertEquals(List.of("a"), one.values());
+        assertEquals(List.of("a", "b"), two.values());
+        assertEquals(List.of("c", "b"), replaced.values());
+        assertEquals(List.of("c"), removed.values());
+        assertSame(two, two.remove(5));
+        assertSame(two, two.put(33, two.get(33)));
+        assertTrue(one.remove(1).isEmpty());
+        assertThrows(NullPointerException.class, () -> one.put(2, null));
+    }
+
+    @Test
+    void iteratesInAscendingKeyOrder() {
+        PersistentIntMap<Integer> map = PersistentIntMap.empty();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            int key = random.nextInt(Integer.MAX_VALUE);
+            map = map.put(key, key);
+            expected.put(key, key);
+        }
+
+        List<Integer> values = new ArrayList<>();
+        map.forEach(values::add);
+        assertEquals(new ArrayList<>(expected.values()), values);
+    }
+
+    @Test
+    void setSharesUnchangedVersionsAndWalksKeysInOrder() {
+        PersistentIntSet empty = PersistentIntSet.empty();
+        PersistentIntSet set = empty.add(40).add(7).add(1_000);
+        PersistentIntSet smaller = set.remove(7);
+
+        assertTrue(empty.isEmpty());
+        assertEquals(List.of(7, 40, 1_000), set.toList());
+        assertEquals(List.of(40, 1_000), smaller.toList());
+        assertSame(set, set.add(40), "adding a present value must keep the set");
+        assertSame(set, set.remove(8), "removing a missing value must keep the set");
+        assertFalse(smaller.contains(7));
+        assertEquals(2, smaller.size());
+        assertSame(PersistentIntSet.empty(), smaller.remove(40).remove(1_000));
+    }
+}